@@ -0,0 +1,24 @@
+package com.dm.ecommerce.config;
+
+import com.dm.ecommerce.service.AuthModeStore;
+import com.dm.ecommerce.service.impl.FileAuthModeStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Authentication mode store configuration.
+ * Defaults to a file-backed store; nodes sharing the file share the mode.
+ */
+@Configuration
+public class AuthModeConfig {
+    
+    @Bean
+    @ConditionalOnMissingBean(AuthModeStore.class)
+    public AuthModeStore authModeStore(@Value("${auth-mode.store-path:${java.io.tmpdir}/ecommerce/auth-mode.properties}") String storePath) {
+        return new FileAuthModeStore(Path.of(storePath));
+    }
+}
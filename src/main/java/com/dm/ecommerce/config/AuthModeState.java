@@ -0,0 +1,11 @@
+package com.dm.ecommerce.config;
+
+/**
+ * Versioned authentication mode. Every switch increments the version, so nodes sharing
+ * a store can tell which of two modes is the latest.
+ *
+ * @param mode    the authentication mode
+ * @param version the switch count
+ */
+public record AuthModeState(AuthMode mode, long version) {
+}
@@ -0,0 +1,17 @@
+package com.dm.ecommerce.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache configuration.
+ * The caches themselves are Caffeine caches configured through {@code spring.cache.*};
+ * their hit, miss, eviction and load statistics are exported through the actuator.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    
+    public static final String PRODUCTS_CACHE = "products";
+    public static final String CATEGORIES_CACHE = "categories";
+}
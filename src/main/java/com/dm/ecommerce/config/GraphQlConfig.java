@@ -0,0 +1,99 @@
+package com.dm.ecommerce.config;
+
+import com.dm.ecommerce.graphql.ReusedDocumentProvider;
+import com.dm.ecommerce.graphql.SqlStatementCounter;
+import com.dm.ecommerce.model.Category;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.model.Review;
+import com.dm.ecommerce.model.User;
+import com.dm.ecommerce.repository.CategoryRepository;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.repository.ReviewRepository;
+import com.dm.ecommerce.repository.UserRepository;
+import graphql.GraphQLContext;
+import org.dataloader.BatchLoaderEnvironment;
+import org.springframework.boot.autoconfigure.graphql.GraphQlSourceBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.graphql.execution.BatchLoaderRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * GraphQL configuration.
+ * Registers the DataLoaders used to batch nested field resolution so that each
+ * execution level issues a single IN query per type instead of one query per entity.
+ */
+@Configuration
+public class GraphQlConfig {
+    
+    public static final String CATEGORY_LOADER = "categoryLoader";
+    public static final String PRODUCT_REVIEWS_LOADER = "productReviewsLoader";
+    public static final String CATEGORY_PRODUCTS_LOADER = "categoryProductsLoader";
+    public static final String USER_LOADER = "userLoader";
+    
+    private final SqlStatementCounter sqlStatementCounter;
+    
+    public GraphQlConfig(BatchLoaderRegistry registry,
+                         CategoryRepository categoryRepository,
+                         ProductRepository productRepository,
+                         ReviewRepository reviewRepository,
+                         UserRepository userRepository,
+                         SqlStatementCounter sqlStatementCounter) {
+        this.sqlStatementCounter = sqlStatementCounter;
+        
+        // Category by ID
+        registry.<Long, Category>forName(CATEGORY_LOADER)
+                .registerMappedBatchLoader((ids, env) -> counted(env, () ->
+                        categoryRepository.findAllById(ids).stream()
+                                .collect(Collectors.toMap(Category::getId, Function.identity()))));
+        
+        // Reviews by product ID
+        registry.<Long, List<Review>>forName(PRODUCT_REVIEWS_LOADER)
+                .registerMappedBatchLoader((ids, env) -> counted(env, () ->
+                        groupBy(reviewRepository.findByProductIdIn(ids),
+                                review -> review.getProduct().getId())));
+        
+        // Products by category ID
+        registry.<Long, List<Product>>forName(CATEGORY_PRODUCTS_LOADER)
+                .registerMappedBatchLoader((ids, env) -> counted(env, () ->
+                        groupBy(productRepository.findByCategoryIdIn(ids),
+                                product -> product.getCategory().getId())));
+        
+        // User by ID
+        registry.<Long, User>forName(USER_LOADER)
+                .registerMappedBatchLoader((ids, env) -> counted(env, () ->
+                        userRepository.findAllById(ids).stream()
+                                .collect(Collectors.toMap(User::getId, Function.identity()))));
+    }
+    
+    /**
+     * Let execution reuse documents already parsed by filters.
+     *
+     * @param reusedDocumentProvider the document provider
+     * @return the GraphQL source customizer
+     */
+    @Bean
+    public GraphQlSourceBuilderCustomizer reusedDocumentCustomizer(ReusedDocumentProvider reusedDocumentProvider) {
+        return builder -> builder.configureGraphQl(graphQl -> graphQl.preparsedDocumentProvider(reusedDocumentProvider));
+    }
+    
+    /**
+     * Load a batch with its statements counted into the operation that requested it.
+     */
+    private <V> Mono<Map<Long, V>> counted(BatchLoaderEnvironment env, Callable<Map<Long, V>> load) {
+        GraphQLContext context = env.getContext();
+        AtomicInteger count = context != null ? context.get(SqlStatementCounter.CONTEXT_KEY) : null;
+        return Mono.fromCallable(() -> sqlStatementCounter.count(count, load));
+    }
+    
+    private static <T> Map<Long, List<T>> groupBy(List<T> entities, Function<T, Long> key) {
+        return entities.stream().collect(Collectors.groupingBy(key));
+    }
+}
@@ -0,0 +1,26 @@
+package com.dm.ecommerce.config;
+
+import com.dm.ecommerce.graphql.SqlStatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JPA / Hibernate configuration.
+ */
+@Configuration
+public class JpaConfig {
+
+    /**
+     * Register the SQL statement counter with Hibernate so statements can be
+     * attributed to the GraphQL operation that issued them.
+     *
+     * @param sqlStatementCounter the statement counter
+     * @return the Hibernate properties customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter sqlStatementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlStatementCounter);
+    }
+}
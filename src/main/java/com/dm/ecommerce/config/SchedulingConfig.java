@@ -0,0 +1,12 @@
+package com.dm.ecommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling configuration for periodic maintenance jobs such as the sale refresh.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,8 +1,16 @@
 package com.dm.ecommerce.config;
 
+import com.dm.ecommerce.security.BoundedPasswordEncoder;
+import com.dm.ecommerce.security.ModeAwareSecurityContextRepository;
+import com.dm.ecommerce.security.PasswordHashVersions;
+import com.dm.ecommerce.security.RouteTable;
+import com.dm.ecommerce.security.RouteTable.Access;
 import com.dm.ecommerce.security.jwt.JwtAuthenticationFilter;
-import com.dm.ecommerce.service.AuthModeService;
+import com.dm.ecommerce.security.ratelimit.LoginRateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -11,25 +19,26 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
-import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
-import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 
 import java.util.Arrays;
 
 /**
  * Security configuration for the application.
+ * A single filter chain guards every route; routes are classified once per request
+ * by a precompiled {@link RouteTable}.
  */
 @Configuration
+@Slf4j
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
@@ -38,61 +47,96 @@ public class SecurityConfig {
     private JwtAuthenticationFilter jwtAuthenticationFilter;
     
     @Autowired
-    private AuthModeService authModeService;
+    private LoginRateLimitFilter loginRateLimitFilter;
+    
+    @Autowired
+    private ModeAwareSecurityContextRepository securityContextRepository;
+    
+    @Value("${password-hashing.bcrypt-strength:10}")
+    private int bcryptStrength;
+    
+    // 0 uses half of the available processors
+    @Value("${password-hashing.threads:0}")
+    private int hashingThreads;
+    
+    @Value("${password-hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+    
+    /**
+     * Compile the public, static and admin routes into the route table.
+     *
+     * @return the route table
+     */
+    @Bean
+    public RouteTable routeTable() {
+        return new RouteTable()
+                // Static resources and public catalog reads bypass the filter chain
+                .route("/", Access.IGNORED)
+                .route("/index.html", Access.IGNORED)
+                .route("/css/**", Access.IGNORED)
+                .route("/js/**", Access.IGNORED)
+                .route("/images/**", Access.IGNORED)
+                .route("/favicon.ico", Access.IGNORED)
+                .route("/static/**", Access.IGNORED)
+                .route("/error", Access.IGNORED)
+                .route("/emergency", Access.IGNORED)
+                .route("/direct-index", Access.IGNORED)
+                .route("/h2-console/**", Access.IGNORED)
+                .route("/swagger-ui/**", Access.IGNORED)
+                .route("/v3/api-docs/**", Access.IGNORED)
+                .route("/swagger-resources/**", Access.IGNORED)
+                .route("/graphiql/**", Access.IGNORED)
+                .route(HttpMethod.GET, "/api/products/**", Access.IGNORED)
+                .route(HttpMethod.GET, "/api/categories/**", Access.IGNORED)
+                
+                // Public endpoints that still need rate limiting or an optional user
+                .route("/api/auth/**", Access.PUBLIC)
+                .route("/graphql", Access.PUBLIC)
+                
+                // Admin endpoints
+                .route("/api/admin/**", Access.ADMIN);
+    }
+    
+    /**
+     * Skip the security filter chain for routes that need no security context.
+     *
+     * @param routeTable the route table
+     * @return the web security customizer
+     */
+    @Bean
+    public WebSecurityCustomizer webSecurityCustomizer(RouteTable routeTable) {
+        return web -> web.ignoring().requestMatchers(routeTable.matcher(Access.IGNORED));
+    }
     
     /**
      * Configure the security filter chain.
      *
      * @param http the HttpSecurity object
+     * @param routeTable the route table
      * @return the configured SecurityFilterChain
      * @throws Exception if an error occurs during configuration
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, HandlerMappingIntrospector introspector) throws Exception {
-        MvcRequestMatcher.Builder mvcMatcherBuilder = new MvcRequestMatcher.Builder(introspector);
-        
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, RouteTable routeTable) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource())) // Enable CORS
                 .authorizeHttpRequests(auth -> auth
-                        // Static resources - used by AntPathRequestMatcher for reliability with static resources
-                        .requestMatchers(new AntPathRequestMatcher("/")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/index.html")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/css/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/js/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/images/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/favicon.ico")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/static/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/error")).permitAll()
-                        
-                        // Swagger UI endpoints
-                        .requestMatchers(new AntPathRequestMatcher("/swagger-ui/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/v3/api-docs/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/swagger-resources/**")).permitAll()
-                        
-                        // Public API endpoints
-                        .requestMatchers(mvcMatcherBuilder.pattern("/api/auth/**")).permitAll()
-                        .requestMatchers(mvcMatcherBuilder.pattern("/graphql")).permitAll()
-                        .requestMatchers(mvcMatcherBuilder.pattern("/graphiql/**")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/h2-console/**")).permitAll()
-                        .requestMatchers(mvcMatcherBuilder.pattern(HttpMethod.GET, "/api/products/**")).permitAll()
-                        .requestMatchers(mvcMatcherBuilder.pattern(HttpMethod.GET, "/api/categories/**")).permitAll()
-                        
-                        // Admin endpoints
-                        .requestMatchers(mvcMatcherBuilder.pattern("/api/admin/**")).hasRole("ADMIN")
+                        .requestMatchers(routeTable.matcher(Access.PUBLIC)).permitAll()
+                        .requestMatchers(routeTable.matcher(Access.ADMIN)).hasRole("ADMIN")
                         
                         // User endpoints
                         .anyRequest().authenticated()
                 )
-                .sessionManagement(session -> {
-                    if (authModeService.isStateless()) {
-                        // Use stateless sessions for JWT auth
-                        session.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
-                    } else {
-                        // Use stateful sessions for session-based auth
-                        session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED);
-                    }
-                });
+                // The repository follows the current auth mode per request: sessions are
+                // only used in STATEFUL mode, so a mode switch needs no chain rebuild.
+                // They live in the session store, never in container HTTP sessions
+                .securityContext(context -> context.securityContextRepository(securityContextRepository))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .requestCache(cache -> cache.requestCache(new NullRequestCache()));
+        
+        // Throttle authentication attempts before any password hashing
+        http.addFilterBefore(loginRateLimitFilter, UsernamePasswordAuthenticationFilter.class);
         
         // Add JWT filter for stateless auth
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -124,12 +168,21 @@ public class SecurityConfig {
     
     /**
      * Configure the password encoder.
+     * Hashes are versioned by BCrypt work factor and upgraded on login; BCrypt runs on
+     * a bounded pool so that hashing bursts cannot take every core.
      *
+     * @param meterRegistry the meter registry for hashing metrics
      * @return the password encoder
      */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = hashingThreads > 0 ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(
+                PasswordHashVersions.createEncoder(bcryptStrength), threads, hashingQueueCapacity, meterRegistry);
+        
+        log.info("BCrypt strength {} takes {} ms per hash; hashing on {} threads with a queue of {}",
+                bcryptStrength, encoder.benchmark(), threads, hashingQueueCapacity);
+        return encoder;
     }
     
     /**
@@ -0,0 +1,26 @@
+package com.dm.ecommerce.config;
+
+import com.dm.ecommerce.security.session.FileSessionStore;
+import com.dm.ecommerce.security.session.SessionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+/**
+ * Session store configuration for STATEFUL authentication mode.
+ * Defaults to a file-backed store; nodes sharing the directory share sessions.
+ */
+@Configuration
+public class SessionStoreConfig {
+    
+    @Bean
+    @ConditionalOnMissingBean(SessionStore.class)
+    public SessionStore sessionStore(@Value("${session-store.path:${java.io.tmpdir}/ecommerce/sessions}") String path,
+                                     ServerProperties serverProperties) {
+        return new FileSessionStore(Path.of(path), serverProperties.getServlet().getSession().getTimeout());
+    }
+}
@@ -1,6 +1,8 @@
 package com.dm.ecommerce.controller;
 
 import com.dm.ecommerce.model.User;
+import com.dm.ecommerce.payload.PasswordMigrationStatus;
+import com.dm.ecommerce.service.PasswordMigrationService;
 import com.dm.ecommerce.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +24,9 @@ public class AdminController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private PasswordMigrationService passwordMigrationService;
+    
     /**
      * Admin dashboard information.
      * 
@@ -75,4 +80,24 @@ public class AdminController {
             return ResponseEntity.badRequest().body(response);
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Start the password hash migration job (admin only).
+     * 
+     * @return the status of the started or already running migration
+     */
+    @PostMapping("/password-migration")
+    public ResponseEntity<PasswordMigrationStatus> startPasswordMigration() {
+        return ResponseEntity.accepted().body(passwordMigrationService.startMigration());
+    }
+    
+    /**
+     * Get the progress of the password hash migration job (admin only).
+     * 
+     * @return the migration status
+     */
+    @GetMapping("/password-migration")
+    public ResponseEntity<PasswordMigrationStatus> getPasswordMigrationStatus() {
+        return ResponseEntity.ok(passwordMigrationService.getStatus());
+    }
+}
\ No newline at end of file
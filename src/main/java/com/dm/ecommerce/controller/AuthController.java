@@ -5,20 +5,30 @@ import com.dm.ecommerce.model.User;
 import com.dm.ecommerce.payload.AuthModeResponse;
 import com.dm.ecommerce.payload.AuthResponse;
 import com.dm.ecommerce.payload.LoginRequest;
+import com.dm.ecommerce.payload.RefreshTokenRequest;
 import com.dm.ecommerce.payload.RegisterRequest;
+import com.dm.ecommerce.security.ModeAwareSecurityContextRepository;
 import com.dm.ecommerce.security.jwt.JwtUtils;
 import com.dm.ecommerce.service.AuthModeService;
+import com.dm.ecommerce.service.RefreshTokenService;
 import com.dm.ecommerce.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * Controller for handling authentication-related endpoints.
  */
@@ -38,6 +48,12 @@ public class AuthController {
     @Autowired
     private AuthModeService authModeService;
     
+    @Autowired
+    private ModeAwareSecurityContextRepository securityContextRepository;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
     /**
      * Register a new user.
      *
@@ -53,21 +69,26 @@ public class AuthController {
         );
         
         String jwt = null;
+        String refreshToken = null;
         if (authModeService.isStateless()) {
             jwt = jwtUtils.generateJwtToken(user);
+            refreshToken = refreshTokenService.issue(user.getId());
         }
         
-        return ResponseEntity.ok(new AuthResponse(jwt, user));
+        return ResponseEntity.ok(new AuthResponse(jwt, refreshToken, user));
     }
     
     /**
      * Authenticate a user.
      *
      * @param loginRequest the login request
+     * @param request the HTTP request
+     * @param response the HTTP response
      * @return the authentication response
      */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<AuthResponse> login(@RequestBody LoginRequest loginRequest,
+                                              HttpServletRequest request, HttpServletResponse response) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                         loginRequest.getUsername(),
@@ -75,34 +96,70 @@ public class AuthController {
                 )
         );
         
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        
+        // Stored in the session in STATEFUL mode, discarded after the request otherwise
+        securityContextRepository.saveContext(context, request, response);
         
         User user = userService.findByUsername(loginRequest.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         String jwt = null;
+        String refreshToken = null;
         if (authModeService.isStateless()) {
             jwt = jwtUtils.generateJwtToken(authentication);
+            refreshToken = refreshTokenService.issue(user.getId());
         }
         
-        return ResponseEntity.ok(new AuthResponse(jwt, user));
+        return ResponseEntity.ok(new AuthResponse(jwt, refreshToken, user));
+    }
+    
+    /**
+     * Exchange a refresh token for a new access token and a new refresh token.
+     * The presented refresh token can not be used again.
+     *
+     * @param refreshRequest the refresh request
+     * @return the authentication response, or 401 if the refresh token is invalid
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest refreshRequest) {
+        Optional<AuthResponse> refreshed = Optional.ofNullable(refreshRequest.getRefreshToken())
+                .flatMap(refreshTokenService::rotate)
+                .flatMap(rotation -> userService.findById(rotation.userId())
+                        .map(user -> new AuthResponse(jwtUtils.generateJwtToken(user), rotation.refreshToken(), user)));
+        
+        if (refreshed.isEmpty()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Invalid or expired refresh token");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+        return ResponseEntity.ok(refreshed.get());
     }
     
     /**
      * Logout a user.
      *
+     * @param logoutRequest the refresh token to revoke, optional
      * @param request the HTTP request
+     * @param response the HTTP response
      * @return a response indicating success
      */
     @PostMapping("/logout")
-    public ResponseEntity<Void> logout(HttpServletRequest request) {
-        if (authModeService.isStateful()) {
-            HttpSession session = request.getSession(false);
-            if (session != null) {
-                session.invalidate();
-            }
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshTokenRequest logoutRequest,
+                                       HttpServletRequest request, HttpServletResponse response) {
+        String jwt = jwtUtils.parseJwt(request);
+        if (jwt != null) {
+            jwtUtils.revokeJwtToken(jwt);
+        }
+        
+        if (logoutRequest != null && logoutRequest.getRefreshToken() != null) {
+            refreshTokenService.revoke(logoutRequest.getRefreshToken());
         }
         
+        securityContextRepository.removeContext(request, response);
+        
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok().build();
     }
@@ -118,12 +175,14 @@ public class AuthController {
     }
     
     /**
-     * Switch the authentication mode.
+     * Switch the authentication mode. The switch is stored and picked up by every node, so
+     * only admins may make it.
      *
      * @param mode the new authentication mode
      * @return the updated authentication mode response
      */
     @PostMapping("/mode")
+    @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<AuthModeResponse> switchAuthMode(@RequestParam String mode) {
         AuthMode newMode = AuthMode.valueOf(mode.toUpperCase());
         authModeService.switchMode(newMode);
@@ -1,11 +1,11 @@
 package com.dm.ecommerce.controller;
 
 import com.dm.ecommerce.model.Cart;
-import com.dm.ecommerce.model.CartItem;
-import com.dm.ecommerce.model.Product;
-import com.dm.ecommerce.model.User;
-import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.payload.CartBatchRequest;
+import com.dm.ecommerce.security.UserPrincipal;
+import com.dm.ecommerce.service.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -13,10 +13,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * REST Controller for Cart operations
@@ -27,7 +25,7 @@ import java.util.Optional;
 public class CartController {
 
     @Autowired
-    private ProductRepository productRepository;
+    private CartService cartService;
 
     /**
      * Get the current user's cart
@@ -36,25 +34,15 @@ public class CartController {
      */
     @GetMapping
     public ResponseEntity<Cart> getCart() {
-        User user = getCurrentUser();
-        
-        // In a real application, we would fetch the cart from a repository
-        // For now, we'll create a dummy cart for demonstration
-        Cart cart = user.getCart();
-        if (cart == null) {
-            cart = new Cart();
-            cart.setUser(user);
-        }
-        
-        return ResponseEntity.ok(cart);
+        return ResponseEntity.ok(cartService.getCart(getCurrentUserId()));
     }
 
     /**
-     * Add a product to the cart
+     * Add a product to the cart. Adding a product already in the cart increases its quantity.
      *
      * @param productId the product ID to add
      * @param quantity the quantity to add
-     * @return the updated cart
+     * @return a summary of the change
      */
     @PostMapping("/items")
     public ResponseEntity<?> addToCart(
@@ -62,28 +50,19 @@ public class CartController {
             @RequestParam(defaultValue = "1") Integer quantity) {
         
         if (quantity <= 0) {
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Quantity must be greater than zero");
-            return ResponseEntity.badRequest().body(response);
+            return badRequest("Quantity must be greater than zero");
         }
         
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (productOpt.isEmpty()) {
+        try {
+            cartService.addItem(getCurrentUserId(), productId, quantity);
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
         
-        Product product = productOpt.get();
-        User user = getCurrentUser();
-        
-        // In a real application, we would fetch the cart from a repository
-        // For now, we'll create a dummy response for demonstration
         Map<String, Object> response = new HashMap<>();
-        response.put("message", quantity + " " + product.getName() + " added to cart");
+        response.put("message", "Product added to cart");
         response.put("productId", productId);
         response.put("quantity", quantity);
-        response.put("productName", product.getName());
-        response.put("price", product.getPrice());
-        response.put("subtotal", product.getPrice().multiply(BigDecimal.valueOf(quantity)));
         
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
@@ -93,21 +72,27 @@ public class CartController {
      *
      * @param itemId the cart item ID
      * @param quantity the new quantity
-     * @return the updated cart
+     * @param version the item version the change is based on, optional
+     * @return a summary of the change, or 409 if the item changed since that version
      */
     @PutMapping("/items/{itemId}")
     public ResponseEntity<?> updateCartItem(
             @PathVariable Long itemId,
-            @RequestParam Integer quantity) {
+            @RequestParam Integer quantity,
+            @RequestParam(required = false) Long version) {
         
         if (quantity <= 0) {
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Quantity must be greater than zero");
-            return ResponseEntity.badRequest().body(response);
+            return badRequest("Quantity must be greater than zero");
+        }
+        
+        try {
+            if (!cartService.updateItemQuantity(getCurrentUserId(), itemId, quantity, version)) {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
         }
         
-        // In a real application, we would fetch and update the cart item
-        // For now, we'll create a dummy response for demonstration
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Cart item updated successfully");
         response.put("itemId", itemId);
@@ -120,23 +105,53 @@ public class CartController {
      * Remove an item from the cart
      *
      * @param itemId the cart item ID to remove
-     * @return no content if successful
+     * @param version the item version the change is based on, optional
+     * @return no content if successful, or 409 if the item changed since that version
      */
     @DeleteMapping("/items/{itemId}")
-    public ResponseEntity<Void> removeFromCart(@PathVariable Long itemId) {
-        // In a real application, we would fetch and remove the cart item
-        // For now, we'll just return a successful response
+    public ResponseEntity<?> removeFromCart(
+            @PathVariable Long itemId,
+            @RequestParam(required = false) Long version) {
+        try {
+            if (!cartService.removeItem(getCurrentUserId(), itemId, version)) {
+                return ResponseEntity.notFound().build();
+            }
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        }
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Apply several cart operations in one request, in order and all or nothing, e.g. to
+     * reorder a previous order or import a wishlist
+     *
+     * @param request the operations to apply
+     * @return the updated cart, 400 if any operation is invalid, or 409 if an item changed
+     * since the version given for it
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyOperations(@RequestBody CartBatchRequest request) {
+        Long userId = getCurrentUserId();
+        try {
+            cartService.applyOperations(userId, request.getOperations());
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        }
+        return ResponseEntity.ok(cartService.getCart(userId));
+    }
+
     /**
      * Clear the cart
      *
-     * @return the empty cart
+     * @return a confirmation message
      */
     @DeleteMapping
     public ResponseEntity<?> clearCart() {
-        // In a real application, we would fetch and clear the user's cart
+        cartService.clearCart(getCurrentUserId());
+        
         Map<String, String> response = new HashMap<>();
         response.put("message", "Cart cleared successfully");
         
@@ -144,17 +159,24 @@ public class CartController {
     }
     
     /**
-     * Helper method to get the current authenticated user
+     * Helper method to get the current authenticated user's ID
      * 
-     * @return the current user
+     * @return the current user ID
      */
-    private User getCurrentUser() {
+    private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        // In a real application, we would fetch the user from a UserService or UserRepository
-        // For now, we'll create a dummy user for demonstration
-        User user = new User();
-        user.setId(1L);
-        user.setUsername(authentication.getName());
-        return user;
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
+    }
+    
+    private ResponseEntity<Map<String, String>> badRequest(String message) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", message);
+        return ResponseEntity.badRequest().body(response);
+    }
+    
+    private ResponseEntity<Map<String, String>> conflict(OptimisticLockingFailureException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
-} 
\ No newline at end of file
+}
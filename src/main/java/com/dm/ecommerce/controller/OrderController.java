@@ -0,0 +1,131 @@
+package com.dm.ecommerce.controller;
+
+import com.dm.ecommerce.model.Order;
+import com.dm.ecommerce.payload.CheckoutRequest;
+import com.dm.ecommerce.payload.OrderRequest;
+import com.dm.ecommerce.security.UserPrincipal;
+import com.dm.ecommerce.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for Order operations
+ */
+@RestController
+@RequestMapping("/api/orders")
+@PreAuthorize("isAuthenticated()")
+public class OrderController {
+
+    @Autowired
+    private OrderService orderService;
+
+    /**
+     * Get the current user's orders, newest first
+     *
+     * @return the orders
+     */
+    @GetMapping
+    public ResponseEntity<List<Order>> getOrders() {
+        return ResponseEntity.ok(orderService.getUserOrders(getCurrentUser().getId()));
+    }
+
+    /**
+     * Get an order of the current user's; admins can get any order
+     *
+     * @param id the order ID
+     * @return the order, or 404 if not found
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
+        UserPrincipal user = getCurrentUser();
+        return orderService.getOrderById(id)
+                .filter(order -> user.isAdmin() || order.getUser().getId().equals(user.getId()))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Place an order for the given items
+     *
+     * @param request the items, shipping address and payment method
+     * @return the placed order
+     */
+    @PostMapping
+    public ResponseEntity<?> createOrder(@RequestBody OrderRequest request) {
+        UserPrincipal user = getCurrentUser();
+        Long userId = request.getUserId() != null ? request.getUserId() : user.getId();
+        if (!userId.equals(user.getId()) && !user.isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        try {
+            Order order = orderService.createOrder(userId, request.getItems(),
+                    request.getShippingAddressId(), request.getPaymentMethod());
+            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+    }
+
+    /**
+     * Place an order for the contents of the current user's cart, then empty the cart
+     *
+     * @param request the shipping address and payment method
+     * @return the placed order
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(@RequestBody CheckoutRequest request) {
+        try {
+            Order order = orderService.checkout(getCurrentUser().getId(),
+                    request.getShippingAddressId(), request.getPaymentMethod());
+            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+    }
+
+    /**
+     * Change an order's status
+     *
+     * @param id the order ID
+     * @param status the new status
+     * @return the updated order, or 404 if not found
+     */
+    @PutMapping("/{id}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateOrderStatus(@PathVariable Long id, @RequestParam String status) {
+        Order.OrderStatus orderStatus;
+        try {
+            orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return badRequest("Unknown order status: " + status);
+        }
+        
+        return orderService.updateOrderStatus(id, orderStatus)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Helper method to get the current authenticated user
+     * 
+     * @return the current user
+     */
+    private UserPrincipal getCurrentUser() {
+        return (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+    
+    private ResponseEntity<Map<String, String>> badRequest(String message) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", message);
+        return ResponseEntity.badRequest().body(response);
+    }
+}
@@ -2,13 +2,25 @@ package com.dm.ecommerce.controller;
 
 import com.dm.ecommerce.model.Product;
 import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.service.ProductCatalogService;
+import com.dm.ecommerce.service.ProductExportService;
+import com.dm.ecommerce.service.ProductListingService;
+import com.dm.ecommerce.service.ProductListingService.ProductSlice;
+import com.dm.ecommerce.service.ProductSearchService;
+import com.dm.ecommerce.service.RelatedProductsService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,15 +32,89 @@ public class ProductController {
 
     @Autowired
     private ProductRepository productRepository;
+    
+    @Autowired
+    private ProductSearchService productSearchService;
+    
+    @Autowired
+    private ProductCatalogService productCatalogService;
+    
+    @Autowired
+    private ProductListingService productListingService;
+    
+    @Autowired
+    private ProductExportService productExportService;
+    
+    @Autowired
+    private RelatedProductsService relatedProductsService;
 
     /**
-     * Get all products
+     * Get products ordered by ID, one cursor-paginated page at a time. The body is always
+     * a list of products; if more follow, a Link header with rel="next" points to the next
+     * page. Without {@code after} or {@code limit}, the first page holds up to
+     * {@link ProductListingService#MAX_UNPAGED_SIZE} products
      * 
-     * @return List of all products
+     * @param after the cursor to resume after
+     * @param limit the maximum number of products to return
+     * @return List of products
      */
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        return ResponseEntity.ok(productRepository.findAll());
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        boolean unpaged = after == null && limit == null;
+        int pageSize;
+        if (unpaged) {
+            pageSize = ProductListingService.MAX_UNPAGED_SIZE;
+        } else {
+            pageSize = (limit != null && limit > 0)
+                    ? Math.min(limit, ProductListingService.MAX_PAGE_SIZE)
+                    : ProductListingService.DEFAULT_PAGE_SIZE;
+        }
+        
+        ProductSlice slice;
+        try {
+            slice = productListingService.findProductsAfter(null, null, after, pageSize);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        if (!slice.hasNext()) {
+            return ResponseEntity.ok(slice.products());
+        }
+        String next = UriComponentsBuilder.fromPath("/api/products")
+                .queryParam("after", slice.endCursor())
+                .queryParam("limit", unpaged ? ProductListingService.MAX_PAGE_SIZE : pageSize)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                .body(slice.products());
+    }
+
+    /**
+     * Export the whole catalog as newline-delimited JSON or CSV.
+     * Rows are streamed straight to the response with constant memory.
+     * 
+     * @param format the export format, "ndjson" (default) or "csv"
+     * @param response the HTTP response to stream into
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping("/export")
+    public void exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletResponse response) throws IOException {
+        if ("csv".equalsIgnoreCase(format)) {
+            response.setContentType("text/csv;charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"");
+            productExportService.exportCsv(response.getOutputStream());
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            response.setContentType("application/x-ndjson");
+            productExportService.exportNdjson(response.getOutputStream());
+        } else {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unsupported export format: " + format);
+        }
     }
 
     /**
@@ -39,7 +125,7 @@ public class ProductController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        Optional<Product> product = productRepository.findById(id);
+        Optional<Product> product = productCatalogService.findProductWithReviewsById(id);
         return product.map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -54,6 +140,9 @@ public class ProductController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Product> createProduct(@RequestBody Product product) {
         Product newProduct = productRepository.save(product);
+        productSearchService.indexProduct(newProduct);
+        productCatalogService.evictProductAfterCommit(newProduct.getId());
+        relatedProductsService.updateProduct(newProduct);
         return ResponseEntity.status(HttpStatus.CREATED).body(newProduct);
     }
 
@@ -74,8 +163,14 @@ public class ProductController {
                     existingProduct.setPrice(productDetails.getPrice());
                     existingProduct.setStockQuantity(productDetails.getStockQuantity());
                     existingProduct.setCategory(productDetails.getCategory());
+                    existingProduct.setSalePrice(productDetails.getSalePrice());
+                    existingProduct.setSaleStartsAt(productDetails.getSaleStartsAt());
+                    existingProduct.setSaleEndsAt(productDetails.getSaleEndsAt());
                     
                     Product updatedProduct = productRepository.save(existingProduct);
+                    productSearchService.indexProduct(updatedProduct);
+                    productCatalogService.evictProductAfterCommit(id);
+                    relatedProductsService.updateProduct(updatedProduct);
                     return ResponseEntity.ok(updatedProduct);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -93,6 +188,9 @@ public class ProductController {
         return productRepository.findById(id)
                 .map(product -> {
                     productRepository.delete(product);
+                    productSearchService.removeProduct(id);
+                    productCatalogService.evictProductAfterCommit(id);
+                    relatedProductsService.removeProduct(id);
                     return ResponseEntity.noContent().<Void>build();
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
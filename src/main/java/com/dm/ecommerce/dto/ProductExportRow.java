@@ -0,0 +1,24 @@
+package com.dm.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Flat projection of a product used by the catalog export.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductExportRow {
+    private Long id;
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private Integer stockQuantity;
+    private Long categoryId;
+    private Integer reviewCount;
+    private Double averageRating;
+}
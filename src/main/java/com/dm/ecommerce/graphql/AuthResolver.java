@@ -6,19 +6,22 @@ import com.dm.ecommerce.payload.AuthModeResponse;
 import com.dm.ecommerce.payload.AuthResponse;
 import com.dm.ecommerce.payload.LoginRequest;
 import com.dm.ecommerce.payload.RegisterRequest;
+import com.dm.ecommerce.security.ModeAwareSecurityContextRepository;
 import com.dm.ecommerce.security.jwt.JwtUtils;
 import com.dm.ecommerce.service.AuthModeService;
+import com.dm.ecommerce.service.RefreshTokenService;
 import com.dm.ecommerce.service.UserService;
 import graphql.schema.DataFetchingEnvironment;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -42,6 +45,12 @@ public class AuthResolver {
     @Autowired
     private AuthModeService authModeService;
     
+    @Autowired
+    private ModeAwareSecurityContextRepository securityContextRepository;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
     /**
      * Register a new user.
      *
@@ -57,11 +66,13 @@ public class AuthResolver {
         );
         
         String jwt = null;
+        String refreshToken = null;
         if (authModeService.isStateless()) {
             jwt = jwtUtils.generateJwtToken(registeredUser);
+            refreshToken = refreshTokenService.issue(registeredUser.getId());
         }
         
-        return new AuthResponse(jwt, registeredUser);
+        return new AuthResponse(jwt, refreshToken, registeredUser);
     }
     
     /**
@@ -79,35 +90,66 @@ public class AuthResolver {
                 )
         );
         
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        
+        // Stored in the session in STATEFUL mode, discarded after the request otherwise
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            securityContextRepository.saveContext(context, attributes.getRequest(), attributes.getResponse());
+        }
         
         User user = userService.findByUsername(login.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         String jwt = null;
+        String refreshToken = null;
         if (authModeService.isStateless()) {
             jwt = jwtUtils.generateJwtToken(authentication);
+            refreshToken = refreshTokenService.issue(user.getId());
         }
         
-        return new AuthResponse(jwt, user);
+        return new AuthResponse(jwt, refreshToken, user);
+    }
+    
+    /**
+     * Exchange a refresh token for a new access token and a new refresh token.
+     * The presented refresh token can not be used again.
+     *
+     * @param refreshToken the refresh token
+     * @return the authentication response
+     */
+    @MutationMapping
+    public AuthResponse refreshToken(@Argument String refreshToken) {
+        return refreshTokenService.rotate(refreshToken)
+                .flatMap(rotation -> userService.findById(rotation.userId())
+                        .map(user -> new AuthResponse(jwtUtils.generateJwtToken(user), rotation.refreshToken(), user)))
+                .orElseThrow(() -> new RuntimeException("Invalid or expired refresh token"));
     }
     
     /**
      * Log out a user.
      *
+     * @param refreshToken the refresh token to revoke, optional
      * @return true if logout was successful
      */
     @MutationMapping
-    public Boolean logout() {
-        if (authModeService.isStateful()) {
-            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            if (attributes != null) {
-                HttpServletRequest request = attributes.getRequest();
-                HttpSession session = request.getSession(false);
-                if (session != null) {
-                    session.invalidate();
-                }
+    public Boolean logout(@Argument String refreshToken) {
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+        
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            HttpServletRequest request = attributes.getRequest();
+            
+            String jwt = jwtUtils.parseJwt(request);
+            if (jwt != null) {
+                jwtUtils.revokeJwtToken(jwt);
             }
+            
+            securityContextRepository.removeContext(request, attributes.getResponse());
         }
         
         SecurityContextHolder.clearContext();
@@ -125,12 +167,14 @@ public class AuthResolver {
     }
     
     /**
-     * Switch the authentication mode.
+     * Switch the authentication mode. The switch is stored and picked up by every node, so
+     * only admins may make it.
      *
      * @param mode the new authentication mode
      * @return the updated authentication mode
      */
     @MutationMapping
+    @PreAuthorize("hasRole('ADMIN')")
     public AuthModeResponse switchAuthMode(@Argument String mode) {
         AuthMode newMode = AuthMode.valueOf(mode.toUpperCase());
         authModeService.switchMode(newMode);
@@ -0,0 +1,157 @@
+package com.dm.ecommerce.graphql;
+
+import com.dm.ecommerce.model.Cart;
+import com.dm.ecommerce.model.CartItem;
+import com.dm.ecommerce.payload.CartOperation;
+import com.dm.ecommerce.security.UserPrincipal;
+import com.dm.ecommerce.service.CartService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GraphQL resolver for the current user's cart.
+ */
+@Controller
+@PreAuthorize("isAuthenticated()")
+public class CartResolver {
+    
+    @Autowired
+    private CartService cartService;
+    
+    /**
+     * Get the current user's cart.
+     *
+     * @return the cart
+     */
+    @QueryMapping
+    public Cart getUserCart() {
+        return cartService.getCart(getCurrentUserId());
+    }
+    
+    /**
+     * Add a product to the cart.
+     *
+     * @param item the product and quantity to add
+     * @return the updated cart
+     */
+    @MutationMapping
+    public Cart addItemToCart(@Argument Map<String, Object> item) {
+        Long userId = getCurrentUserId();
+        Long productId = Long.valueOf(item.get("productId").toString());
+        int quantity = (Integer) item.get("quantity");
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        
+        cartService.addItem(userId, productId, quantity);
+        return cartService.getCart(userId);
+    }
+    
+    /**
+     * Update the quantity of a cart item.
+     *
+     * @param itemId   the cart item ID
+     * @param quantity the new quantity
+     * @return the updated cart
+     */
+    @MutationMapping
+    public Cart updateCartItem(@Argument Long itemId, @Argument Integer quantity) {
+        Long userId = getCurrentUserId();
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        
+        if (!cartService.updateItemQuantity(userId, itemId, quantity, null)) {
+            throw new IllegalArgumentException("Cart item not found with id: " + itemId);
+        }
+        return cartService.getCart(userId);
+    }
+    
+    /**
+     * Remove an item from the cart.
+     *
+     * @param itemId the cart item ID
+     * @return the updated cart
+     */
+    @MutationMapping
+    public Cart removeCartItem(@Argument Long itemId) {
+        Long userId = getCurrentUserId();
+        if (!cartService.removeItem(userId, itemId, null)) {
+            throw new IllegalArgumentException("Cart item not found with id: " + itemId);
+        }
+        return cartService.getCart(userId);
+    }
+    
+    /**
+     * Clear the cart.
+     *
+     * @return the emptied cart
+     */
+    @MutationMapping
+    public Cart clearCart() {
+        Long userId = getCurrentUserId();
+        cartService.clearCart(userId);
+        return cartService.getCart(userId);
+    }
+    
+    /**
+     * Apply several cart operations in order, all or nothing.
+     *
+     * @param operations the operations
+     * @return the updated cart
+     */
+    @MutationMapping
+    public Cart updateCart(@Argument List<CartOperation> operations) {
+        Long userId = getCurrentUserId();
+        cartService.applyOperations(userId, operations);
+        return cartService.getCart(userId);
+    }
+    
+    /**
+     * Resolve Cart.userId; carts are only ever served to their owner.
+     *
+     * @param cart the parent cart
+     * @return the owner's ID
+     */
+    @SchemaMapping(typeName = "Cart", field = "userId")
+    public Long userId(Cart cart) {
+        return cart.getUser() != null ? cart.getUser().getId() : getCurrentUserId();
+    }
+    
+    /**
+     * Resolve CartItem.cartId
+     *
+     * @param item the parent item
+     * @return the cart ID
+     */
+    @SchemaMapping(typeName = "CartItem", field = "cartId")
+    public Long cartId(CartItem item) {
+        return item.getCart().getId();
+    }
+    
+    /**
+     * Resolve CartItem.productId
+     *
+     * @param item the parent item
+     * @return the product ID
+     */
+    @SchemaMapping(typeName = "CartItem", field = "productId")
+    public Long productId(CartItem item) {
+        return item.getProduct().getId();
+    }
+    
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ((UserPrincipal) authentication.getPrincipal()).getId();
+    }
+}
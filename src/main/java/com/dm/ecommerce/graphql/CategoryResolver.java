@@ -1,13 +1,18 @@
 package com.dm.ecommerce.graphql;
 
 import com.dm.ecommerce.model.Category;
+import com.dm.ecommerce.model.Product;
 import com.dm.ecommerce.repository.CategoryRepository;
+import com.dm.ecommerce.service.ProductCatalogService;
+import org.dataloader.DataLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.stereotype.Controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * GraphQL resolver for category-related operations.
@@ -17,6 +22,9 @@ public class CategoryResolver {
 
     @Autowired
     private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private ProductCatalogService productCatalogService;
 
     /**
      * Get a category by ID
@@ -28,7 +36,7 @@ public class CategoryResolver {
     public Category getCategoryById(@Argument String id) {
         try {
             Long categoryId = Long.parseLong(id);
-            return categoryRepository.findById(categoryId).orElse(null);
+            return productCatalogService.findCategoryById(categoryId).orElse(null);
         } catch (NumberFormatException e) {
             return null;
         }
@@ -43,4 +51,17 @@ public class CategoryResolver {
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Resolve Category.products, batched per execution level
+     *
+     * @param category the parent category
+     * @param categoryProductsLoader the product loader for the current request
+     * @return the products in the category
+     */
+    @SchemaMapping(typeName = "Category", field = "products")
+    public CompletableFuture<List<Product>> products(Category category, DataLoader<Long, List<Product>> categoryProductsLoader) {
+        return categoryProductsLoader.load(category.getId())
+                .thenApply(products -> products != null ? products : List.of());
+    }
+}
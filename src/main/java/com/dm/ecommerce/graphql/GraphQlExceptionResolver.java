@@ -0,0 +1,44 @@
+package com.dm.ecommerce.graphql;
+
+import com.dm.ecommerce.security.PasswordHashingOverloadException;
+import graphql.ErrorClassification;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.schema.DataFetchingEnvironment;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.graphql.execution.ErrorType;
+import org.springframework.graphql.execution.DataFetcherExceptionResolverAdapter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps application exceptions to GraphQL errors with a meaningful classification.
+ */
+@Component
+public class GraphQlExceptionResolver extends DataFetcherExceptionResolverAdapter {
+    
+    public static final ErrorClassification TOO_MANY_REQUESTS = ErrorClassification.errorClassification("TOO_MANY_REQUESTS");
+    public static final ErrorClassification CONFLICT = ErrorClassification.errorClassification("CONFLICT");
+    
+    @Override
+    protected GraphQLError resolveToSingleError(Throwable ex, DataFetchingEnvironment env) {
+        if (ex instanceof PasswordHashingOverloadException) {
+            return GraphqlErrorBuilder.newError(env)
+                    .errorType(TOO_MANY_REQUESTS)
+                    .message(ex.getMessage())
+                    .build();
+        }
+        if (ex instanceof OptimisticLockingFailureException) {
+            return GraphqlErrorBuilder.newError(env)
+                    .errorType(CONFLICT)
+                    .message(ex.getMessage())
+                    .build();
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return GraphqlErrorBuilder.newError(env)
+                    .errorType(ErrorType.BAD_REQUEST)
+                    .message(ex.getMessage())
+                    .build();
+        }
+        return null;
+    }
+}
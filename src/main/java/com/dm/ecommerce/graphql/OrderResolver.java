@@ -0,0 +1,131 @@
+package com.dm.ecommerce.graphql;
+
+import com.dm.ecommerce.model.Order;
+import com.dm.ecommerce.model.OrderItem;
+import com.dm.ecommerce.model.PaymentInfo;
+import com.dm.ecommerce.payload.OrderRequest;
+import com.dm.ecommerce.security.UserPrincipal;
+import com.dm.ecommerce.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+
+/**
+ * GraphQL resolver for orders. Users see and place their own orders; admins any user's.
+ */
+@Controller
+@PreAuthorize("isAuthenticated()")
+public class OrderResolver {
+    
+    @Autowired
+    private OrderService orderService;
+    
+    /**
+     * Get an order by ID.
+     *
+     * @param id the order ID
+     * @return the order, or null if not found or not the current user's
+     */
+    @QueryMapping
+    public Order getOrderById(@Argument Long id) {
+        UserPrincipal user = getCurrentUser();
+        return orderService.getOrderById(id)
+                .filter(order -> user.isAdmin() || order.getUser().getId().equals(user.getId()))
+                .orElse(null);
+    }
+    
+    /**
+     * Get a user's orders, newest first.
+     *
+     * @param userId the user ID
+     * @return the orders
+     */
+    @QueryMapping
+    public List<Order> getUserOrders(@Argument Long userId) {
+        checkAccess(userId);
+        return orderService.getUserOrders(userId);
+    }
+    
+    /**
+     * Place an order for the given items.
+     *
+     * @param order the order input
+     * @return the placed order
+     */
+    @MutationMapping
+    public Order createOrder(@Argument OrderRequest order) {
+        checkAccess(order.getUserId());
+        return orderService.createOrder(order.getUserId(), order.getItems(),
+                order.getShippingAddressId(), order.getPaymentMethod());
+    }
+    
+    /**
+     * Place an order for the contents of the current user's cart, then empty the cart.
+     *
+     * @param shippingAddressId the shipping address ID
+     * @param paymentMethod     the payment method
+     * @return the placed order
+     */
+    @MutationMapping
+    public Order checkout(@Argument Long shippingAddressId, @Argument String paymentMethod) {
+        return orderService.checkout(getCurrentUser().getId(), shippingAddressId, paymentMethod);
+    }
+    
+    /**
+     * Change an order's status.
+     *
+     * @param id     the order ID
+     * @param status the new status
+     * @return the updated order, or null if not found
+     */
+    @MutationMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public Order updateOrderStatus(@Argument Long id, @Argument String status) {
+        Order.OrderStatus orderStatus;
+        try {
+            orderStatus = Order.OrderStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown order status: " + status);
+        }
+        return orderService.updateOrderStatus(id, orderStatus).orElse(null);
+    }
+    
+    @SchemaMapping(typeName = "Order", field = "userId")
+    public Long userId(Order order) {
+        return order.getUser().getId();
+    }
+    
+    @SchemaMapping(typeName = "OrderItem", field = "orderId")
+    public Long orderId(OrderItem item) {
+        return item.getOrder().getId();
+    }
+    
+    @SchemaMapping(typeName = "OrderItem", field = "productId")
+    public Long productId(OrderItem item) {
+        return item.getProduct().getId();
+    }
+    
+    @SchemaMapping(typeName = "PaymentInfo", field = "orderId")
+    public Long paymentOrderId(PaymentInfo payment) {
+        return payment.getOrder().getId();
+    }
+    
+    private void checkAccess(Long userId) {
+        UserPrincipal user = getCurrentUser();
+        if (!user.isAdmin() && !user.getId().equals(userId)) {
+            throw new AccessDeniedException("Access is denied");
+        }
+    }
+    
+    private UserPrincipal getCurrentUser() {
+        return (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+}
@@ -6,16 +6,27 @@ import com.dm.ecommerce.model.Review;
 import com.dm.ecommerce.repository.CategoryRepository;
 import com.dm.ecommerce.repository.ProductRepository;
 import com.dm.ecommerce.repository.ReviewRepository;
+import com.dm.ecommerce.search.ProductSearchIndex.SearchResult;
+import com.dm.ecommerce.service.ProductCatalogService;
+import com.dm.ecommerce.service.ProductListingService;
+import com.dm.ecommerce.service.ProductListingService.ProductSlice;
+import com.dm.ecommerce.service.ProductSearchService;
+import com.dm.ecommerce.service.RelatedProductsService;
+import org.dataloader.DataLoader;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.stereotype.Controller;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * GraphQL resolver for product-related operations.
@@ -31,6 +42,18 @@ public class ProductResolver {
     
     @Autowired
     private ReviewRepository reviewRepository;
+    
+    @Autowired
+    private ProductSearchService productSearchService;
+    
+    @Autowired
+    private ProductCatalogService productCatalogService;
+    
+    @Autowired
+    private ProductListingService productListingService;
+    
+    @Autowired
+    private RelatedProductsService relatedProductsService;
 
     /**
      * Get a product by ID
@@ -42,20 +65,22 @@ public class ProductResolver {
     public Product getProductById(@Argument String id) {
         try {
             Long productId = Long.parseLong(id);
-            return productRepository.findById(productId).orElse(null);
+            return productCatalogService.findProductById(productId).orElse(null);
         } catch (NumberFormatException e) {
             return null;
         }
     }
 
     /**
-     * Get all products
+     * Get all products, up to {@link ProductListingService#MAX_UNPAGED_SIZE}
+     * ordered by ID; getProductsConnection pages through the rest
      *
-     * @return list of all products
+     * @return list of products
      */
     @QueryMapping
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return productListingService.findProductsAfter(null, null, null, ProductListingService.MAX_UNPAGED_SIZE)
+                .products();
     }
 
     /**
@@ -75,14 +100,43 @@ public class ProductResolver {
     }
 
     /**
-     * Search products by keyword
+     * Search products by keyword in name and description, best match first
      *
      * @param keyword the search keyword
+     * @param page page number (0-based)
+     * @param size page size
      * @return list of matching products
      */
     @QueryMapping
-    public List<Product> searchProducts(@Argument String keyword) {
-        return productRepository.findByNameContainingIgnoreCase(keyword);
+    public List<Product> searchProducts(@Argument String keyword, @Argument Integer page, @Argument Integer size) {
+        int pageNum = (page != null && page >= 0) ? page : 0;
+        int pageSize = (size != null && size > 0) ? size : 20;
+        
+        return productSearchService.loadProducts(productSearchService.search(keyword, pageNum, pageSize));
+    }
+    
+    /**
+     * Search products by keyword with paging metadata and spelling suggestions
+     *
+     * @param keyword the search keyword
+     * @param page page number (0-based)
+     * @param size page size
+     * @return ProductSearchResult object with the matching products, total count and suggestions
+     */
+    @QueryMapping
+    public Map<String, Object> searchProductsPage(@Argument String keyword, @Argument Integer page, @Argument Integer size) {
+        int pageNum = (page != null && page >= 0) ? page : 0;
+        int pageSize = (size != null && size > 0) ? size : 20;
+        
+        SearchResult searchResult = productSearchService.search(keyword, pageNum, pageSize);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", productSearchService.loadProducts(searchResult));
+        result.put("totalCount", searchResult.totalHits());
+        result.put("page", pageNum);
+        result.put("size", pageSize);
+        result.put("suggestions", searchResult.suggestions());
+        return result;
     }
     
     /**
@@ -101,22 +155,11 @@ public class ProductResolver {
             
             if (optionalProduct.isPresent()) {
                 Product product = optionalProduct.get();
-                List<Review> reviews = product.getReviews();
-                
-                // Calculate average rating
-                double averageRating = 0.0;
-                if (!reviews.isEmpty()) {
-                    averageRating = reviews.stream()
-                            .mapToInt(Review::getRating)
-                            .average()
-                            .orElse(0.0);
-                }
                 
                 result.put("product", product);
                 result.put("category", product.getCategory());
-                result.put("reviews", reviews);
-                result.put("averageRating", BigDecimal.valueOf(averageRating)
-                        .setScale(1, RoundingMode.HALF_UP).doubleValue());
+                result.put("reviews", product.getReviews());
+                result.put("averageRating", roundRating(product.getAverageRating()));
                 result.put("inStock", product.getStockQuantity() > 0);
             }
         } catch (NumberFormatException e) {
@@ -136,18 +179,48 @@ public class ProductResolver {
     public List<Product> getTopRatedProducts(@Argument Integer limit) {
         int resultsLimit = (limit != null && limit > 0) ? limit : 10;
         
-        // This is a simplified implementation - in a real system with a larger
-        // database, you would use SQL queries with JOINs and GROUP BY for better performance
-        List<Product> allProducts = productRepository.findAll();
+        // Served from the averageRating index with LIMIT
+        List<Product> topRated = productRepository.findTopRated(PageRequest.of(0, resultsLimit));
+        
+        if (topRated.isEmpty() && reviewRepository.count() > 0) {
+            // Rating aggregates have not been populated yet for the reviewed products
+            return findTopRatedFromReviews(resultsLimit);
+        }
+        
+        return topRated;
+    }
+    
+    /**
+     * Select the top rated products from per-product review averages in a
+     * single pass, keeping only the best {@code limit} entries in a min-heap.
+     * Ties go to the higher product ID, as in {@link ProductRepository#findTopRated}.
+     */
+    private List<Product> findTopRatedFromReviews(int limit) {
+        Comparator<Object[]> byRating = Comparator
+                .comparingDouble((Object[] row) -> ((Number) row[1]).doubleValue())
+                .thenComparing(row -> (Long) row[0]);
+        PriorityQueue<Object[]> heap = new PriorityQueue<>(limit + 1, byRating);
+        
+        for (Object[] row : reviewRepository.findAverageRatingPerProduct()) {
+            heap.offer(row);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        
+        // Drain the heap from lowest to highest, then reverse to get descending order
+        List<Long> ids = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ids.add((Long) heap.poll()[0]);
+        }
+        Collections.reverse(ids);
+        
+        Map<Long, Product> productsById = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, product -> product));
         
-        return allProducts.stream()
-                .filter(product -> !product.getReviews().isEmpty())
-                .sorted((p1, p2) -> {
-                    double avg1 = p1.getReviews().stream().mapToInt(Review::getRating).average().orElse(0);
-                    double avg2 = p2.getReviews().stream().mapToInt(Review::getRating).average().orElse(0);
-                    return Double.compare(avg2, avg1); // Sort descending
-                })
-                .limit(resultsLimit)
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
     
@@ -167,29 +240,18 @@ public class ProductResolver {
             
             if (optionalProduct.isPresent()) {
                 Product product = optionalProduct.get();
-                List<Review> reviews = product.getReviews();
-                
-                int totalReviews = reviews.size();
-                double averageRating = reviews.stream()
-                        .mapToInt(Review::getRating)
-                        .average()
-                        .orElse(0.0);
-                
-                // Calculate rating distribution
-                Map<Integer, Long> ratingCounts = reviews.stream()
-                        .collect(Collectors.groupingBy(Review::getRating, Collectors.counting()));
                 
+                // Rating distribution from the stored histogram
                 List<Map<String, Object>> ratingDistribution = new ArrayList<>();
                 for (int i = 1; i <= 5; i++) {
                     Map<String, Object> ratingCount = new HashMap<>();
                     ratingCount.put("rating", i);
-                    ratingCount.put("count", ratingCounts.getOrDefault(i, 0L).intValue());
+                    ratingCount.put("count", product.getRatingCount(i));
                     ratingDistribution.add(ratingCount);
                 }
                 
-                result.put("totalReviews", totalReviews);
-                result.put("averageRating", BigDecimal.valueOf(averageRating)
-                        .setScale(1, RoundingMode.HALF_UP).doubleValue());
+                result.put("totalReviews", product.getReviewCount());
+                result.put("averageRating", roundRating(product.getAverageRating()));
                 result.put("ratingDistribution", ratingDistribution);
             }
         } catch (NumberFormatException e) {
@@ -229,7 +291,7 @@ public class ProductResolver {
     }
     
     /**
-     * Get related products based on the same category
+     * Get related products from the same category, ranked by rating and price proximity
      *
      * @param productId the product ID
      * @param limit the maximum number of related products to return
@@ -241,20 +303,8 @@ public class ProductResolver {
         
         try {
             Long id = Long.parseLong(productId);
-            Optional<Product> optionalProduct = productRepository.findById(id);
-            
-            if (optionalProduct.isPresent()) {
-                Product product = optionalProduct.get();
-                Category category = product.getCategory();
-                
-                if (category != null) {
-                    // Get products in the same category excluding the current product
-                    return productRepository.findByCategoryId(category.getId()).stream()
-                            .filter(p -> !p.getId().equals(product.getId()))
-                            .limit(resultsLimit)
-                            .collect(Collectors.toList());
-                }
-            }
+            List<Long> relatedIds = relatedProductsService.findRelatedIds(id, resultsLimit);
+            return productCatalogService.findProductsByIds(relatedIds);
         } catch (NumberFormatException e) {
             // Return empty list on error
         }
@@ -277,116 +327,88 @@ public class ProductResolver {
             @Argument Map<String, String> sort,
             @Argument Integer page,
             @Argument Integer size) {
+        return productListingService.findFilteredProducts(
+                filter, sort, pageNumber(page), pageSize(size)).getContent();
+    }
+    
+    /**
+     * Get filtered and sorted products with pagination metadata
+     *
+     * @param filter filter criteria
+     * @param sort sort options
+     * @param page page number (0-based)
+     * @param size page size
+     * @return ProductPage object with the page content and total count
+     */
+    @QueryMapping
+    public Map<String, Object> getFilteredProductsPage(
+            @Argument Map<String, Object> filter,
+            @Argument Map<String, String> sort,
+            @Argument Integer page,
+            @Argument Integer size) {
+        Page<Product> products = productListingService.findFilteredProducts(
+                filter, sort, pageNumber(page), pageSize(size));
         
-        // Default pagination values
-        int pageNum = (page != null && page >= 0) ? page : 0;
-        int pageSize = (size != null && size > 0) ? size : 10;
-        
-        // Get all products and apply filtering, sorting, and pagination in memory
-        // In a real application, this would be implemented with a more efficient database query
-        List<Product> allProducts = productRepository.findAll();
-        
-        // Apply filters
-        Stream<Product> filteredProducts = allProducts.stream();
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", products.getContent());
+        result.put("totalCount", products.getTotalElements());
+        result.put("page", products.getNumber());
+        result.put("size", products.getSize());
+        result.put("totalPages", products.getTotalPages());
+        return result;
+    }
+    
+    /**
+     * Get products as a Relay-style connection using keyset pagination
+     *
+     * @param first the maximum number of products to return
+     * @param after the cursor to resume after
+     * @param filter filter criteria
+     * @param sort sort options
+     * @return ProductConnection object with edges and page info
+     */
+    @QueryMapping
+    public Map<String, Object> getProductsConnection(
+            @Argument Integer first,
+            @Argument String after,
+            @Argument Map<String, Object> filter,
+            @Argument Map<String, String> sort) {
+        ProductSlice slice = productListingService.findProductsAfter(filter, sort, after, pageSize(first));
         
-        if (filter != null) {
-            // Price range filter
-            if (filter.containsKey("minPrice")) {
-                Double minPrice = (Double) filter.get("minPrice");
-                filteredProducts = filteredProducts.filter(p -> 
-                        p.getPrice().doubleValue() >= minPrice);
-            }
-            
-            if (filter.containsKey("maxPrice")) {
-                Double maxPrice = (Double) filter.get("maxPrice");
-                filteredProducts = filteredProducts.filter(p -> 
-                        p.getPrice().doubleValue() <= maxPrice);
-            }
-            
-            // Category filter
-            if (filter.containsKey("categoryIds")) {
-                List<String> categoryIds = (List<String>) filter.get("categoryIds");
-                List<Long> catIds = categoryIds.stream()
-                        .map(id -> {
-                            try {
-                                return Long.parseLong(id);
-                            } catch (NumberFormatException e) {
-                                return null;
-                            }
-                        })
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-                
-                filteredProducts = filteredProducts.filter(p -> 
-                        p.getCategory() != null && catIds.contains(p.getCategory().getId()));
-            }
-            
-            // Stock filter
-            if (filter.containsKey("inStock")) {
-                Boolean inStock = (Boolean) filter.get("inStock");
-                filteredProducts = filteredProducts.filter(p -> 
-                        inStock ? p.getStockQuantity() > 0 : p.getStockQuantity() == 0);
-            }
-            
-            // Rating filter
-            if (filter.containsKey("minRating")) {
-                Integer minRating = (Integer) filter.get("minRating");
-                filteredProducts = filteredProducts.filter(p -> {
-                    if (p.getReviews().isEmpty()) {
-                        return false;
-                    }
-                    double avgRating = p.getReviews().stream()
-                            .mapToInt(Review::getRating)
-                            .average()
-                            .orElse(0.0);
-                    return avgRating >= minRating;
-                });
-            }
+        List<Map<String, Object>> edges = new ArrayList<>();
+        for (int i = 0; i < slice.products().size(); i++) {
+            Map<String, Object> edge = new HashMap<>();
+            edge.put("node", slice.products().get(i));
+            edge.put("cursor", slice.cursors().get(i));
+            edges.add(edge);
         }
         
-        // Apply sorting
-        if (sort != null && sort.containsKey("field") && sort.containsKey("direction")) {
-            String field = sort.get("field");
-            String direction = sort.get("direction");
-            boolean ascending = "ASC".equalsIgnoreCase(direction);
-            
-            Comparator<Product> comparator = null;
-            
-            switch (field.toLowerCase()) {
-                case "price":
-                    comparator = Comparator.comparing(p -> p.getPrice().doubleValue());
-                    break;
-                case "name":
-                    comparator = Comparator.comparing(Product::getName);
-                    break;
-                case "rating":
-                    comparator = Comparator.comparing(p -> {
-                        if (p.getReviews().isEmpty()) {
-                            return 0.0;
-                        }
-                        return p.getReviews().stream()
-                                .mapToInt(Review::getRating)
-                                .average()
-                                .orElse(0.0);
-                    });
-                    break;
-                default:
-                    // Default to sorting by ID
-                    comparator = Comparator.comparing(Product::getId);
-            }
-            
-            if (!ascending) {
-                comparator = comparator.reversed();
-            }
-            
-            filteredProducts = filteredProducts.sorted(comparator);
-        }
+        Map<String, Object> pageInfo = new HashMap<>();
+        pageInfo.put("hasNextPage", slice.hasNext());
+        pageInfo.put("endCursor", slice.endCursor());
         
-        // Apply pagination
-        return filteredProducts
-                .skip((long) pageNum * pageSize)
-                .limit(pageSize)
-                .collect(Collectors.toList());
+        Map<String, Object> result = new HashMap<>();
+        result.put("edges", edges);
+        result.put("pageInfo", pageInfo);
+        return result;
+    }
+    
+    private int pageNumber(Integer page) {
+        return (page != null && page >= 0) ? page : 0;
+    }
+    
+    private int pageSize(Integer size) {
+        return (size != null && size > 0)
+                ? Math.min(size, ProductListingService.MAX_PAGE_SIZE)
+                : ProductListingService.DEFAULT_PAGE_SIZE;
+    }
+    
+    /**
+     * Round a stored average rating to one decimal place for display.
+     */
+    private double roundRating(double averageRating) {
+        return BigDecimal.valueOf(averageRating)
+                .setScale(1, RoundingMode.HALF_UP).doubleValue();
     }
     
     /**
@@ -399,18 +421,7 @@ public class ProductResolver {
     public List<Map<String, Object>> getProductSummaries(@Argument List<String> ids) {
         List<Map<String, Object>> results = new ArrayList<>();
         
-        List<Long> productIds = ids.stream()
-                .map(id -> {
-                    try {
-                        return Long.parseLong(id);
-                    } catch (NumberFormatException e) {
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        
-        List<Product> products = productRepository.findAllById(productIds);
+        List<Product> products = productCatalogService.findProductsByIds(ProductListingService.parseIds(ids));
         
         for (Product product : products) {
             Map<String, Object> summary = new HashMap<>();
@@ -423,15 +434,8 @@ public class ProductResolver {
                 summary.put("categoryName", product.getCategory().getName());
             }
             
-            // Calculate average rating
-            if (!product.getReviews().isEmpty()) {
-                double averageRating = product.getReviews().stream()
-                        .mapToInt(Review::getRating)
-                        .average()
-                        .orElse(0.0);
-                
-                summary.put("averageRating", BigDecimal.valueOf(averageRating)
-                        .setScale(1, RoundingMode.HALF_UP).doubleValue());
+            if (product.getReviewCount() > 0) {
+                summary.put("averageRating", roundRating(product.getAverageRating()));
             }
             
             results.add(summary);
@@ -441,23 +445,43 @@ public class ProductResolver {
     }
 
     /**
-     * Get products that are on sale (simulated)
-     * In a real system, you would have a "salePrice" or "onSale" field on the Product entity
+     * Get products whose sale window is currently active, ordered by ID
      *
+     * @param page page number (0-based)
+     * @param size page size
      * @return list of products on sale
      */
     @QueryMapping
-    public List<Product> getProductsOnSale() {
-        // Simulate sale products by returning a subset of products
-        // In a real application, this would query products with a sale flag or discount field
-        List<Product> allProducts = productRepository.findAll();
-        
-        // For this example, we'll just return 20% of the products, selected randomly
-        int saleProductCount = Math.max(1, allProducts.size() / 5);
-        
-        return allProducts.stream()
-                .sorted((p1, p2) -> (int) (Math.random() * 3) - 1) // Random shuffle
-                .limit(saleProductCount)
-                .collect(Collectors.toList());
+    public List<Product> getProductsOnSale(@Argument Integer page, @Argument Integer size) {
+        return productRepository.findActiveSales(LocalDateTime.now(),
+                PageRequest.of(pageNumber(page), pageSize(size)));
+    }
+    
+    /**
+     * Resolve Product.category, batched per execution level
+     *
+     * @param product the parent product
+     * @param categoryLoader the category loader for the current request
+     * @return the product's category
+     */
+    @SchemaMapping(typeName = "Product", field = "category")
+    public CompletableFuture<Category> category(Product product, DataLoader<Long, Category> categoryLoader) {
+        if (product.getCategory() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return categoryLoader.load(product.getCategory().getId());
+    }
+    
+    /**
+     * Resolve Product.reviews, batched per execution level
+     *
+     * @param product the parent product
+     * @param productReviewsLoader the review loader for the current request
+     * @return the product's reviews
+     */
+    @SchemaMapping(typeName = "Product", field = "reviews")
+    public CompletableFuture<List<Review>> reviews(Product product, DataLoader<Long, List<Review>> productReviewsLoader) {
+        return productReviewsLoader.load(product.getId())
+                .thenApply(reviews -> reviews != null ? reviews : List.of());
     }
-} 
\ No newline at end of file
+}
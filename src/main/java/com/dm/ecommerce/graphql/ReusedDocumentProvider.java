@@ -0,0 +1,70 @@
+package com.dm.ecommerce.graphql;
+
+import graphql.ExecutionInput;
+import graphql.ParseAndValidate;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.graphql.execution.GraphQlSource;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Lets GraphQL execution reuse a document that a servlet filter already parsed for the
+ * same request, such as the login rate limit filter inspecting authentication mutations,
+ * so the query is parsed once. Reused documents are still validated against the schema.
+ */
+@Component
+public class ReusedDocumentProvider implements PreparsedDocumentProvider, WebGraphQlInterceptor {
+    
+    /**
+     * Request attribute holding the {@link ParsedQuery} a filter parsed.
+     */
+    public static final String ATTRIBUTE = ReusedDocumentProvider.class.getName() + ".document";
+    
+    private final ObjectProvider<GraphQlSource> graphQlSource;
+    
+    public ReusedDocumentProvider(ObjectProvider<GraphQlSource> graphQlSource) {
+        this.graphQlSource = graphQlSource;
+    }
+    
+    /**
+     * A query and the document parsed from it.
+     */
+    public record ParsedQuery(String query, Document document) {
+    }
+    
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        if (request.getAttributes().get(ATTRIBUTE) instanceof ParsedQuery parsed
+                && parsed.query().equals(request.getDocument())) {
+            request.configureExecutionInput((input, builder) -> {
+                input.getGraphQLContext().put(ATTRIBUTE, parsed.document());
+                return input;
+            });
+        }
+        return chain.next(request);
+    }
+    
+    @Override
+    @SuppressWarnings("deprecation")
+    public PreparsedDocumentEntry getDocument(
+            ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        Document document = executionInput.getGraphQLContext().get(ATTRIBUTE);
+        if (document == null) {
+            return parseAndValidateFunction.apply(executionInput);
+        }
+        
+        List<ValidationError> errors = ParseAndValidate.validate(graphQlSource.getObject().schema(), document,
+                executionInput.getLocale());
+        return errors.isEmpty() ? new PreparsedDocumentEntry(document) : new PreparsedDocumentEntry(errors);
+    }
+}
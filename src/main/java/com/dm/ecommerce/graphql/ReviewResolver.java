@@ -0,0 +1,132 @@
+package com.dm.ecommerce.graphql;
+
+import com.dm.ecommerce.model.Review;
+import com.dm.ecommerce.model.User;
+import com.dm.ecommerce.security.UserPrincipal;
+import com.dm.ecommerce.service.ReviewService;
+import org.dataloader.DataLoader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * GraphQL resolver for reviews. Users write and change their own reviews; admins can
+ * change or delete any review.
+ */
+@Controller
+public class ReviewResolver {
+
+    @Autowired
+    private ReviewService reviewService;
+
+    /**
+     * Review a product as the current user.
+     *
+     * @param review the product, rating and comment
+     * @return the saved review
+     */
+    @MutationMapping
+    @PreAuthorize("isAuthenticated()")
+    public Review addReview(@Argument Map<String, Object> review) {
+        return reviewService.createReview(getCurrentUser().getId(),
+                Long.valueOf(review.get("productId").toString()),
+                (Integer) review.get("rating"),
+                (String) review.get("comment"));
+    }
+
+    /**
+     * Change a review's rating and comment.
+     *
+     * @param id     the review ID
+     * @param review the new rating and comment; the product cannot change
+     * @return the updated review, or null if not found
+     */
+    @MutationMapping
+    @PreAuthorize("isAuthenticated()")
+    public Review updateReview(@Argument Long id, @Argument Map<String, Object> review) {
+        if (!checkAccess(id)) {
+            return null;
+        }
+        return reviewService.updateReview(id, (Integer) review.get("rating"), (String) review.get("comment"))
+                .orElse(null);
+    }
+
+    /**
+     * Delete a review.
+     *
+     * @param id the review ID
+     * @return true if the review was deleted
+     */
+    @MutationMapping
+    @PreAuthorize("isAuthenticated()")
+    public boolean deleteReview(@Argument Long id) {
+        return checkAccess(id) && reviewService.deleteReview(id);
+    }
+
+    /**
+     * Resolve Review.user, batched per execution level
+     *
+     * @param review the parent review
+     * @param userLoader the user loader for the current request
+     * @return the review's author
+     */
+    @SchemaMapping(typeName = "Review", field = "user")
+    public CompletableFuture<User> user(Review review, DataLoader<Long, User> userLoader) {
+        if (review.getUser() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return userLoader.load(review.getUser().getId());
+    }
+
+    /**
+     * Resolve Review.productId
+     *
+     * @param review the parent review
+     * @return the product ID
+     */
+    @SchemaMapping(typeName = "Review", field = "productId")
+    public Long productId(Review review) {
+        return review.getProduct().getId();
+    }
+
+    /**
+     * Resolve Review.userId
+     *
+     * @param review the parent review
+     * @return the author's user ID
+     */
+    @SchemaMapping(typeName = "Review", field = "userId")
+    public Long userId(Review review) {
+        return review.getUser().getId();
+    }
+
+    /**
+     * Check that the current user may change a review.
+     *
+     * @return false if the review does not exist
+     * @throws AccessDeniedException if the review is another user's and the current user is not an admin
+     */
+    private boolean checkAccess(Long id) {
+        UserPrincipal user = getCurrentUser();
+        return reviewService.findReviewById(id)
+                .map(review -> {
+                    if (!user.isAdmin() && !review.getUser().getId().equals(user.getId())) {
+                        throw new AccessDeniedException("Access is denied");
+                    }
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    private UserPrincipal getCurrentUser() {
+        return (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    }
+}
@@ -0,0 +1,63 @@
+package com.dm.ecommerce.graphql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hibernate statement inspector that counts SQL statements into the counter of the
+ * GraphQL operation that issued them. Each operation keeps its counter in its GraphQL
+ * context; the counter is bound to a thread only while one of the operation's data
+ * fetchers or batch loaders runs there, so work an operation hands to other threads is
+ * still counted, and nothing outlives the fetch that bound it.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector {
+    
+    private static final long serialVersionUID = 1L;
+    
+    /**
+     * GraphQL context key of the current operation's counter.
+     */
+    public static final String CONTEXT_KEY = SqlStatementCounter.class.getName();
+    
+    // Hibernate passes the inspector nothing but the SQL, so the fetch running on this
+    // thread is the only link back to its operation
+    private final ThreadLocal<AtomicInteger> boundCount = new ThreadLocal<>();
+    
+    /**
+     * Run work with its statements counted into the given counter.
+     *
+     * @param count the counter, or null to run the work uncounted
+     * @param work  the work
+     * @return the work's result
+     * @throws Exception if the work throws
+     */
+    public <T> T count(AtomicInteger count, Callable<T> work) throws Exception {
+        if (count == null) {
+            return work.call();
+        }
+        AtomicInteger previous = boundCount.get();
+        boundCount.set(count);
+        try {
+            return work.call();
+        } finally {
+            if (previous != null) {
+                boundCount.set(previous);
+            } else {
+                boundCount.remove();
+            }
+        }
+    }
+    
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = boundCount.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,93 @@
+package com.dm.ecommerce.graphql;
+
+import graphql.ExecutionResult;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GraphQL instrumentation that records the number of SQL statements issued
+ * per operation, exported as the {@code graphql.operation.sql.statements}
+ * distribution summary so N+1 regressions show up in metrics. The summary is
+ * tagged with the operation type only, since operation names are client-chosen
+ * and would create a meter per name.
+ */
+@Component
+@Slf4j
+public class SqlStatementInstrumentation extends SimplePerformantInstrumentation {
+    
+    private static final String UNKNOWN_OPERATION_TYPE = "unknown";
+    
+    private final SqlStatementCounter sqlStatementCounter;
+    private final MeterRegistry meterRegistry;
+    
+    public SqlStatementInstrumentation(SqlStatementCounter sqlStatementCounter, MeterRegistry meterRegistry) {
+        this.sqlStatementCounter = sqlStatementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    /**
+     * The statement count of one operation, and its type once the document is validated.
+     */
+    private static class OperationStatements implements InstrumentationState {
+        
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile String operationType = UNKNOWN_OPERATION_TYPE;
+    }
+    
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        OperationStatements statements = new OperationStatements();
+        // Batch loaders only see the GraphQL context
+        parameters.getExecutionInput().getGraphQLContext().put(SqlStatementCounter.CONTEXT_KEY, statements.count);
+        return statements;
+    }
+    
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(
+            InstrumentationExecuteOperationParameters parameters, InstrumentationState state) {
+        ((OperationStatements) state).operationType = parameters.getExecutionContext()
+                .getOperationDefinition().getOperation().name().toLowerCase(Locale.ROOT);
+        return SimpleInstrumentationContext.noOp();
+    }
+    
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher,
+                                                InstrumentationFieldFetchParameters parameters,
+                                                InstrumentationState state) {
+        if (parameters.isTrivialDataFetcher()) {
+            return dataFetcher;
+        }
+        AtomicInteger count = ((OperationStatements) state).count;
+        return environment -> sqlStatementCounter.count(count, () -> dataFetcher.get(environment));
+    }
+    
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(
+            InstrumentationExecutionParameters parameters, InstrumentationState state) {
+        OperationStatements statements = (OperationStatements) state;
+        return SimpleInstrumentationContext.whenCompleted((result, throwable) -> {
+            DistributionSummary.builder("graphql.operation.sql.statements")
+                    .description("SQL statements issued per GraphQL operation")
+                    .tag("operationType", statements.operationType)
+                    .register(meterRegistry)
+                    .record(statements.count.get());
+            log.debug("GraphQL {} {} issued {} SQL statements", statements.operationType,
+                    parameters.getOperation() != null ? parameters.getOperation() : "anonymous",
+                    statements.count.get());
+        });
+    }
+}
@@ -31,25 +31,31 @@ public class Cart {
     @JsonManagedReference
     private List<CartItem> items = new ArrayList<>();
     
+    /**
+     * Sum of the item subtotals at their price snapshots, adjusted by delta on every change.
+     */
     @Column(nullable = false)
     private BigDecimal totalAmount = BigDecimal.ZERO;
     
     public void recalculateTotalAmount() {
-        this.totalAmount = items.stream()
-                .map(CartItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            total = total.add(item.getSubtotal());
+        }
+        this.totalAmount = total;
     }
     
     public void addItem(CartItem item) {
         items.add(item);
         item.setCart(this);
-        recalculateTotalAmount();
+        totalAmount = totalAmount.add(item.getSubtotal());
     }
     
     public void removeItem(CartItem item) {
-        items.remove(item);
+        if (items.remove(item)) {
+            totalAmount = totalAmount.subtract(item.getSubtotal());
+        }
         item.setCart(null);
-        recalculateTotalAmount();
     }
     
     public void clearItems() {
@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", uniqueConstraints = {
+        // One row per product per cart; adding a product again increments its quantity
+        @UniqueConstraint(name = "uk_cart_items_cart_product", columnNames = {"cart_id", "product_id"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,8 +34,23 @@ public class CartItem {
     @Column(nullable = false)
     private Integer quantity;
     
+    /**
+     * Unit price when the product was added, so totals never need the product loaded.
+     * Reconciliation reprices items whose product price has since changed.
+     */
+    @Column(nullable = false)
+    private BigDecimal unitPrice;
+    
+    /**
+     * Bumped on every change, so a client editing a stale copy of the cart
+     * (e.g. in another tab) can be detected.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version = 0L;
+    
     @Transient
     public BigDecimal getSubtotal() {
-        return product.getPrice().multiply(BigDecimal.valueOf(quantity));
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
     }
 } 
\ No newline at end of file
@@ -28,4 +28,14 @@ public class Category {
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL)
     @JsonManagedReference
     private List<Product> products = new ArrayList<>();
-} 
\ No newline at end of file
+    
+    /**
+     * Copy this category without its products, e.g. to hand out a cached category
+     * without sharing it.
+     *
+     * @return a detached copy with an empty, read-only product list
+     */
+    public Category copy() {
+        return new Category(id, name, description, List.of());
+    }
+}
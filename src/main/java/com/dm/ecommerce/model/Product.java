@@ -1,17 +1,31 @@
 package com.dm.ecommerce.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Best rated first, matching the top-rated query; H2 does not read indexes backwards
+        @Index(name = "idx_products_average_rating", columnList = "averageRating DESC, id DESC"),
+        @Index(name = "idx_products_price", columnList = "price, id"),
+        @Index(name = "idx_products_name", columnList = "name, id"),
+        @Index(name = "idx_products_on_sale", columnList = "onSale, id"),
+        @Index(name = "idx_products_sale_starts_at", columnList = "saleStartsAt")
+})
+@JsonIgnoreProperties(value = {"reviewCount", "ratingSum", "averageRating", "rating1Count", "rating2Count",
+        "rating3Count", "rating4Count", "rating5Count"}, allowGetters = true)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,14 +46,90 @@ public class Product {
     @Column(nullable = false)
     private Integer stockQuantity;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     @JsonBackReference
     private Category category;
     
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonManagedReference("product-reviews")
     private List<Review> reviews = new ArrayList<>();
     
+    // Rating aggregates, adjusted by ReviewService in the same transaction as each review change
+    // and repaired by ProductRatingReconciliationService. Never written through the entity, so
+    // saving a product cannot overwrite a concurrent adjustment, and ignored in request bodies
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer reviewCount = 0;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long ratingSum = 0L;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Double averageRating = 0.0;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer rating1Count = 0;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer rating2Count = 0;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer rating3Count = 0;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer rating4Count = 0;
+    
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Integer rating5Count = 0;
+    
+    // Sale pricing; the sale is active while now is within [saleStartsAt, saleEndsAt)
+    
+    private BigDecimal salePrice;
+    
+    private LocalDateTime saleStartsAt;
+    
+    private LocalDateTime saleEndsAt;
+    
+    // Kept in step with the sale window on save and by the scheduled sale refresh
+    @Column(nullable = false)
+    private Boolean onSale = false;
+    
+    /**
+     * Check whether the product's sale window covers the given time.
+     *
+     * @param now the time to check
+     * @return true if the sale is active at that time
+     */
+    public boolean isSaleActiveAt(LocalDateTime now) {
+        return salePrice != null && saleStartsAt != null && saleEndsAt != null
+                && !saleStartsAt.isAfter(now) && saleEndsAt.isAfter(now);
+    }
+    
+    /**
+     * Get the price a customer pays at the given time: the sale price while the sale is active.
+     *
+     * @param now the time to price at
+     * @return the current unit price
+     */
+    public BigDecimal currentPriceAt(LocalDateTime now) {
+        return isSaleActiveAt(now) ? salePrice : price;
+    }
+    
+    @PrePersist
+    @PreUpdate
+    void refreshSaleState() {
+        onSale = isSaleActiveAt(LocalDateTime.now());
+    }
+    
     public void addReview(Review review) {
         reviews.add(review);
         review.setProduct(this);
@@ -49,4 +139,37 @@ public class Product {
         reviews.remove(review);
         review.setProduct(null);
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Copy this product, e.g. to hand out a cached product without sharing it. The copy
+     * gets its own category copy and a read-only list of the same reviews, or an empty list
+     * if the reviews were never loaded.
+     *
+     * @return a detached copy
+     */
+    public Product copy() {
+        return new Product(id, name, description, price, stockQuantity,
+                category != null ? category.copy() : null,
+                Hibernate.isInitialized(reviews) ? List.copyOf(reviews) : List.of(),
+                reviewCount, ratingSum, averageRating,
+                rating1Count, rating2Count, rating3Count, rating4Count, rating5Count,
+                salePrice, saleStartsAt, saleEndsAt, onSale);
+    }
+    
+    /**
+     * Get the number of reviews with the given star rating.
+     *
+     * @param rating the star rating (1-5)
+     * @return the number of reviews with that rating
+     */
+    public int getRatingCount(int rating) {
+        return switch (rating) {
+            case 1 -> rating1Count;
+            case 2 -> rating2Count;
+            case 3 -> rating3Count;
+            case 4 -> rating4Count;
+            case 5 -> rating5Count;
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.dm.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A refresh token issued at login. Only the SHA-256 hash of the token is stored, and the
+ * row is rewritten in place on every rotation, so a login session costs one small row.
+ * Rotation extends the expiry, but never past a fixed lifetime from the original login.
+ */
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "idx_refresh_tokens_user", columnList = "userId"),
+        @Index(name = "idx_refresh_tokens_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 44)
+    private String tokenHash;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    // When the login session started; kept across rotations
+    @Column(nullable = false)
+    private LocalDateTime issuedAt;
+}
@@ -0,0 +1,37 @@
+package com.dm.ecommerce.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The hash of a refresh token that was rotated out. A retired token presented again was
+ * copied by someone, so every token of its user is revoked. Kept until the login session
+ * it belonged to could no longer be refreshed anyway.
+ */
+@Entity
+@Table(name = "retired_refresh_tokens", indexes = {
+        @Index(name = "idx_retired_refresh_tokens_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "idx_retired_refresh_tokens_expires_at", columnList = "expiresAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetiredRefreshToken {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false, length = 44)
+    private String tokenHash;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
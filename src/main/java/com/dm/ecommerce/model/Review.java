@@ -21,10 +21,10 @@ public class Review {
     
     @ManyToOne
     @JoinColumn(name = "product_id", nullable = false)
-    @JsonBackReference
+    @JsonBackReference("product-reviews")
     private Product product;
     
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonBackReference
     private User user;
@@ -36,4 +36,4 @@ public class Review {
     
     @Column(nullable = false)
     private LocalDateTime timestamp = LocalDateTime.now();
-} 
\ No newline at end of file
+}
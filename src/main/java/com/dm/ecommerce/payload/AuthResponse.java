@@ -7,11 +7,14 @@ import lombok.NoArgsConstructor;
 
 /**
  * Response payload for authentication operations.
+ * In STATELESS mode this carries a short-lived access token and the refresh token
+ * that renews it; both are null in STATEFUL mode.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class AuthResponse {
     private String token;
+    private String refreshToken;
     private User user;
 } 
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.dm.ecommerce.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One operation of a batched cart change. Which fields are required depends on the type:
+ * ADD takes a product and quantity, UPDATE an item and quantity, REMOVE an item, and
+ * CLEAR nothing. UPDATE and REMOVE can carry the item version the client last saw.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperation {
+    
+    public enum Type {
+        ADD, UPDATE, REMOVE, CLEAR
+    }
+    
+    private Type type;
+    
+    private Long productId;
+    
+    private Long itemId;
+    
+    private Integer quantity;
+    
+    private Long version;
+}
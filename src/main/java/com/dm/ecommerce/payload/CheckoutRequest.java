@@ -0,0 +1,18 @@
+package com.dm.ecommerce.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request payload for ordering the contents of the current user's cart.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutRequest {
+    
+    private Long shippingAddressId;
+    
+    private String paymentMethod;
+}
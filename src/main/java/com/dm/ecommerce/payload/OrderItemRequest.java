@@ -0,0 +1,18 @@
+package com.dm.ecommerce.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A product and quantity to order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderItemRequest {
+    
+    private Long productId;
+    
+    private Integer quantity;
+}
@@ -0,0 +1,27 @@
+package com.dm.ecommerce.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request payload for placing an order for the given items.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRequest {
+    
+    /**
+     * The user to order for; defaults to the current user, and only admins may name another.
+     */
+    private Long userId;
+    
+    private List<OrderItemRequest> items;
+    
+    private Long shippingAddressId;
+    
+    private String paymentMethod;
+}
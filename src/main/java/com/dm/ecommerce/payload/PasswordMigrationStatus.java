@@ -0,0 +1,25 @@
+package com.dm.ecommerce.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the password hash migration job.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PasswordMigrationStatus {
+    private String state;
+    private long total;
+    private long migrated;
+    private long skipped;
+    private long failed;
+    // Hashes not yet at the current version, wrapped ones included; re-encoded when their user next logs in
+    private long pendingUpgrade;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
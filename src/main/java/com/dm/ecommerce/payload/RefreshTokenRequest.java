@@ -0,0 +1,18 @@
+package com.dm.ecommerce.payload;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request payload for refreshing an access token, and for revoking a refresh token on logout.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenRequest {
+    
+    @NotBlank
+    private String refreshToken;
+}
@@ -0,0 +1,21 @@
+package com.dm.ecommerce.repository;
+
+import com.dm.ecommerce.model.Address;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AddressRepository extends JpaRepository<Address, Long> {
+    
+    /**
+     * Find an address only if it belongs to the given user. Written out in JPQL, whose
+     * translation Hibernate caches, since a derived query is rebuilt as a criteria query
+     * and translated again on every call.
+     */
+    @Query("SELECT a FROM Address a WHERE a.id = :id AND a.user.id = :userId")
+    Optional<Address> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+}
@@ -0,0 +1,82 @@
+package com.dm.ecommerce.repository;
+
+import com.dm.ecommerce.model.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Cart item writes addressed by user ID, each a single statement: the user's cart is
+ * resolved in a subquery, and quantities change relative to the stored row so
+ * concurrent writers never overwrite each other.
+ */
+@Repository
+public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+    
+    /**
+     * The current price of an item's product: the sale price while the product is on sale.
+     */
+    String CURRENT_PRICE = "SELECT CASE WHEN p.onSale = true AND p.salePrice IS NOT NULL " +
+                           "THEN p.salePrice ELSE p.price END FROM Product p WHERE p.id = i.product.id";
+    
+    /**
+     * Add a quantity of a product to a user's cart, inserting the item at the given price
+     * or incrementing it at its existing price snapshot. Returns 0 if the user has no cart.
+     */
+    @Modifying
+    @Query(value = "MERGE INTO cart_items i " +
+                   "USING (SELECT id FROM carts WHERE user_id = :userId) c " +
+                   "ON i.cart_id = c.id AND i.product_id = :productId " +
+                   "WHEN MATCHED THEN UPDATE SET quantity = i.quantity + :quantity, version = i.version + 1 " +
+                   "WHEN NOT MATCHED THEN INSERT (cart_id, product_id, quantity, unit_price, version) " +
+                   "VALUES (c.id, :productId, :quantity, :price, 0)",
+           nativeQuery = true)
+    int upsertQuantity(@Param("userId") Long userId, @Param("productId") Long productId,
+                       @Param("quantity") int quantity, @Param("price") BigDecimal price);
+    
+    /**
+     * Set the quantity of an item in a user's cart, optionally only if it is still at the
+     * expected version. Returns 0 if the item does not exist or has changed.
+     */
+    @Modifying
+    @Query("UPDATE CartItem i SET i.quantity = :quantity, i.version = i.version + 1 " +
+           "WHERE i.id = :itemId AND (:version IS NULL OR i.version = :version) " +
+           "AND i.cart.id IN (SELECT c.id FROM Cart c WHERE c.user.id = :userId)")
+    int updateQuantity(@Param("userId") Long userId, @Param("itemId") Long itemId,
+                       @Param("quantity") int quantity, @Param("version") Long version);
+    
+    /**
+     * Remove an item from a user's cart, optionally only if it is still at the expected version.
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem i WHERE i.id = :itemId AND (:version IS NULL OR i.version = :version) " +
+           "AND i.cart.id IN (SELECT c.id FROM Cart c WHERE c.user.id = :userId)")
+    int deleteItem(@Param("userId") Long userId, @Param("itemId") Long itemId, @Param("version") Long version);
+    
+    @Modifying
+    @Query("DELETE FROM CartItem i WHERE i.cart.id IN (SELECT c.id FROM Cart c WHERE c.user.id = :userId)")
+    int deleteAllByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT COUNT(i) > 0 FROM CartItem i WHERE i.id = :itemId AND i.cart.user.id = :userId")
+    boolean existsInCart(@Param("userId") Long userId, @Param("itemId") Long itemId);
+    
+    /**
+     * Reprice a user's items whose snapshot differs from the product's current price,
+     * returning how many changed.
+     */
+    @Modifying
+    @Query("UPDATE CartItem i SET i.unitPrice = (" + CURRENT_PRICE + "), i.version = i.version + 1 " +
+           "WHERE i.cart.id IN (SELECT c.id FROM Cart c WHERE c.user.id = :userId) " +
+           "AND i.unitPrice <> (" + CURRENT_PRICE + ")")
+    int repriceItems(@Param("userId") Long userId);
+    
+    /**
+     * Count items in all carts whose price snapshot differs from the product's current price.
+     */
+    @Query("SELECT COUNT(i) FROM CartItem i WHERE i.unitPrice <> (" + CURRENT_PRICE + ")")
+    long countRepricedItems();
+}
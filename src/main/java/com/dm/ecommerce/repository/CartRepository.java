@@ -0,0 +1,92 @@
+package com.dm.ecommerce.repository;
+
+import com.dm.ecommerce.model.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cart writes keep {@code totalAmount} up to date by delta, computed from the item price
+ * snapshots in the database. Each runs before the matching item write, so its row lock on
+ * the cart serializes concurrent changes to the same cart.
+ */
+@Repository
+public interface CartRepository extends JpaRepository<Cart, Long> {
+    
+    /**
+     * Find a user's cart with its items and their products, in a single query.
+     */
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    @Query("SELECT c FROM Cart c WHERE c.user.id = :userId")
+    Optional<Cart> findWithItemsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Lock a user's row until the transaction ends. Taken before {@link #createIfMissing},
+     * it lets one transaction at a time create the user's cart; the others wait, then find
+     * that cart instead of inserting a second one.
+     */
+    @Query(value = "SELECT id FROM users WHERE id = :userId FOR UPDATE", nativeQuery = true)
+    List<Long> lockUser(@Param("userId") Long userId);
+    
+    /**
+     * Create an empty cart for a user who has none. Call {@link #lockUser} first, in the
+     * same transaction, or a concurrent call can insert a second cart and fail.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO carts (user_id, total_amount) SELECT id, 0 FROM users " +
+                   "WHERE id = :userId AND NOT EXISTS (SELECT 1 FROM carts WHERE user_id = :userId)",
+           nativeQuery = true)
+    int createIfMissing(@Param("userId") Long userId);
+    
+    /**
+     * Add the subtotal of adding a product: priced at the snapshot of the item already in
+     * the cart, or at the given price for a new item. Returns 0 if the user has no cart.
+     */
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = c.totalAmount + :quantity * COALESCE(" +
+           "(SELECT i.unitPrice FROM CartItem i WHERE i.cart.id = c.id AND i.product.id = :productId), :price) " +
+           "WHERE c.user.id = :userId")
+    int addToTotal(@Param("userId") Long userId, @Param("productId") Long productId,
+                   @Param("quantity") int quantity, @Param("price") BigDecimal price);
+    
+    /**
+     * Adjust the total for an item's quantity changing to the given one, 0 for removal.
+     * Returns 0 if the item is not in the user's cart or is no longer at the expected version.
+     */
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = c.totalAmount + " +
+           "(SELECT (:quantity - i.quantity) * i.unitPrice FROM CartItem i WHERE i.id = :itemId AND i.cart.id = c.id) " +
+           "WHERE c.user.id = :userId AND EXISTS (SELECT 1 FROM CartItem i WHERE i.id = :itemId " +
+           "AND i.cart.id = c.id AND (:version IS NULL OR i.version = :version))")
+    int adjustTotalForItem(@Param("userId") Long userId, @Param("itemId") Long itemId,
+                           @Param("quantity") int quantity, @Param("version") Long version);
+    
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = 0 WHERE c.user.id = :userId")
+    int resetTotal(@Param("userId") Long userId);
+    
+    /**
+     * Recompute a user's cart total from its items.
+     */
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = " +
+           "COALESCE((SELECT SUM(i.quantity * i.unitPrice) FROM CartItem i WHERE i.cart.id = c.id), 0) " +
+           "WHERE c.user.id = :userId")
+    int recalculateTotal(@Param("userId") Long userId);
+    
+    /**
+     * Recompute every cart total that no longer matches its items, returning how many drifted.
+     */
+    @Modifying
+    @Query("UPDATE Cart c SET c.totalAmount = " +
+           "COALESCE((SELECT SUM(i.quantity * i.unitPrice) FROM CartItem i WHERE i.cart.id = c.id), 0) " +
+           "WHERE c.totalAmount <> COALESCE((SELECT SUM(i.quantity * i.unitPrice) FROM CartItem i WHERE i.cart.id = c.id), 0)")
+    int repairDriftedTotals();
+}
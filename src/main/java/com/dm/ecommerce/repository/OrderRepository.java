@@ -0,0 +1,36 @@
+package com.dm.ecommerce.repository;
+
+import com.dm.ecommerce.model.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Order reads load each order with its items, their products, the shipping address and
+ * the payment in a single query. Orders are written by
+ * {@link com.dm.ecommerce.service.order.OrderWriter}.
+ */
+@Repository
+public interface OrderRepository extends JpaRepository<Order, Long> {
+    
+    @EntityGraph(attributePaths = {"items", "items.product", "shippingAddress", "paymentInfo"})
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findWithItemsById(@Param("id") Long id);
+    
+    /**
+     * Find a user's orders, newest first.
+     */
+    @EntityGraph(attributePaths = {"items", "items.product", "shippingAddress", "paymentInfo"})
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findWithItemsByUserId(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") String status);
+}
@@ -1,13 +1,134 @@
 package com.dm.ecommerce.repository;
 
+import com.dm.ecommerce.dto.ProductExportRow;
 import com.dm.ecommerce.model.Product;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
     List<Product> findByCategoryId(Long categoryId);
-    List<Product> findByNameContainingIgnoreCase(String name);
+    List<Product> findByCategoryIdIn(Collection<Long> categoryIds);
+    
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findWithCategoryById(@Param("id") Long id);
+    
+    /**
+     * Find several products with their categories in a single query.
+     */
+    @EntityGraph(attributePaths = "category")
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findWithCategoryByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.averageRating FROM Product p WHERE p.id = :id")
+    Optional<Double> findAverageRatingById(@Param("id") Long id);
+    
+    /**
+     * Find the best rated reviewed products, ties broken by newest first. The order matches
+     * the (averageRating DESC, id DESC) index, so the first rows are read from it instead of sorted.
+     */
+    @Query("SELECT p FROM Product p WHERE p.reviewCount > 0 ORDER BY p.averageRating DESC, p.id DESC")
+    List<Product> findTopRated(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.onSale = true "
+            + "AND p.saleStartsAt <= :now AND p.saleEndsAt > :now ORDER BY p.id ASC")
+    List<Product> findActiveSales(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Find products whose sale window has opened but that are not yet flagged as on sale.
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.onSale = false AND p.salePrice IS NOT NULL "
+            + "AND p.saleStartsAt <= :now AND p.saleEndsAt > :now")
+    List<Long> findSalesToStart(@Param("now") LocalDateTime now);
+    
+    /**
+     * Find products flagged as on sale whose sale window no longer covers the given time.
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.onSale = true AND (p.salePrice IS NULL "
+            + "OR p.saleStartsAt IS NULL OR p.saleEndsAt IS NULL "
+            + "OR p.saleStartsAt > :now OR p.saleEndsAt <= :now)")
+    List<Long> findSalesToEnd(@Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.onSale = :onSale WHERE p.id IN :ids")
+    int updateOnSale(@Param("ids") Collection<Long> ids, @Param("onSale") boolean onSale);
+    
+    /**
+     * Move one rating between a product's rating aggregates, relative to the stored values,
+     * so concurrent review changes are never lost. Every right-hand side reads the row as it
+     * was before the update. Pass 0 for {@code removed} when a rating is added, and for
+     * {@code added} when one is removed.
+     *
+     * @return 1, or 0 if the product does not exist
+     */
+    @Modifying
+    @Query("UPDATE Product p SET "
+            + "p.reviewCount = p.reviewCount + :countDelta, "
+            + "p.ratingSum = p.ratingSum + (:added - :removed), "
+            + "p.averageRating = CASE WHEN p.reviewCount + :countDelta > 0 "
+            + "THEN (p.ratingSum + (:added - :removed)) * 1.0 / (p.reviewCount + :countDelta) ELSE 0.0 END, "
+            + "p.rating1Count = p.rating1Count + CASE WHEN :added = 1 THEN 1 ELSE 0 END - CASE WHEN :removed = 1 THEN 1 ELSE 0 END, "
+            + "p.rating2Count = p.rating2Count + CASE WHEN :added = 2 THEN 1 ELSE 0 END - CASE WHEN :removed = 2 THEN 1 ELSE 0 END, "
+            + "p.rating3Count = p.rating3Count + CASE WHEN :added = 3 THEN 1 ELSE 0 END - CASE WHEN :removed = 3 THEN 1 ELSE 0 END, "
+            + "p.rating4Count = p.rating4Count + CASE WHEN :added = 4 THEN 1 ELSE 0 END - CASE WHEN :removed = 4 THEN 1 ELSE 0 END, "
+            + "p.rating5Count = p.rating5Count + CASE WHEN :added = 5 THEN 1 ELSE 0 END - CASE WHEN :removed = 5 THEN 1 ELSE 0 END "
+            + "WHERE p.id = :id")
+    int adjustRatings(@Param("id") Long id, @Param("countDelta") int countDelta,
+                      @Param("removed") int removed, @Param("added") int added);
+    
+    /**
+     * Recompute the rating aggregates of every product whose aggregates no longer match its
+     * reviews, such as reviews that predate the aggregates or were written without ReviewService.
+     *
+     * @return the number of products repaired
+     */
+    @Modifying
+    @Query("UPDATE Product p SET "
+            + "p.reviewCount = (SELECT COUNT(r) FROM Review r WHERE r.product = p), "
+            + "p.ratingSum = (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.product = p), "
+            + "p.averageRating = (SELECT COALESCE(AVG(r.rating), 0.0) FROM Review r WHERE r.product = p), "
+            + "p.rating1Count = (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 1), "
+            + "p.rating2Count = (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 2), "
+            + "p.rating3Count = (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 3), "
+            + "p.rating4Count = (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 4), "
+            + "p.rating5Count = (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 5) "
+            + "WHERE p.reviewCount <> (SELECT COUNT(r) FROM Review r WHERE r.product = p) "
+            + "OR p.ratingSum <> (SELECT COALESCE(SUM(r.rating), 0) FROM Review r WHERE r.product = p) "
+            + "OR p.rating1Count <> (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 1) "
+            + "OR p.rating2Count <> (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 2) "
+            + "OR p.rating3Count <> (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 3) "
+            + "OR p.rating4Count <> (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 4) "
+            + "OR p.rating5Count <> (SELECT COUNT(r) FROM Review r WHERE r.product = p AND r.rating = 5)")
+    int repairDriftedRatings();
+    
+    /**
+     * Stream flat export rows for every product, ordered by ID.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.dm.ecommerce.dto.ProductExportRow(p.id, p.name, p.description, p.price, "
+            + "p.stockQuantity, c.id, p.reviewCount, p.averageRating) "
+            + "FROM Product p LEFT JOIN p.category c ORDER BY p.id")
+    Stream<ProductExportRow> streamExportRows();
 } 
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.dm.ecommerce.repository;
+
+import com.dm.ecommerce.model.Product;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import org.hibernate.query.sqm.NodeBuilder;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+import org.hibernate.query.sqm.tree.expression.SqmTuple;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * JPA Specifications used to build product catalog queries in the database
+ * instead of filtering and sorting entities in memory.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> minPrice(BigDecimal minPrice) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+    }
+
+    public static Specification<Product> maxPrice(BigDecimal maxPrice) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+    }
+
+    public static Specification<Product> inCategories(Collection<Long> categoryIds) {
+        return (root, query, cb) -> root.get("category").get("id").in(categoryIds);
+    }
+
+    public static Specification<Product> inStock(boolean inStock) {
+        return (root, query, cb) -> inStock
+                ? cb.greaterThan(root.get("stockQuantity"), 0)
+                : cb.equal(root.get("stockQuantity"), 0);
+    }
+
+    /**
+     * Products whose average review rating is at least {@code minRating}.
+     * Products without reviews never match.
+     */
+    public static Specification<Product> minRating(int minRating) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThan(root.get("reviewCount"), 0),
+                cb.greaterThanOrEqualTo(root.get("averageRating"), (double) minRating));
+    }
+    
+    /**
+     * Keyset predicate: products strictly after the row with the given sort key
+     * value and ID, for an ordering of {@code (property direction, id direction)}.
+     * Compares the row value {@code (property, id)} with the cursor's, which Hibernate
+     * renders as a row-value comparison where the dialect supports one and expands to
+     * an OR of column comparisons otherwise. The bound on the property alone is implied,
+     * but keeps the expanded form an index range scan.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T extends Comparable<? super T>> Specification<Product> after(
+            String property, Sort.Direction direction, T value, Long id) {
+        return (root, query, cb) -> {
+            NodeBuilder nodeBuilder = (NodeBuilder) cb;
+            Path<T> key = root.get(property);
+            Expression row = new SqmTuple<>(nodeBuilder,
+                    (SqmExpression<?>) key, (SqmExpression<?>) root.<Long>get("id"));
+            Expression cursor = new SqmTuple<>(nodeBuilder,
+                    (SqmExpression<?>) nodeBuilder.value(value), (SqmExpression<?>) nodeBuilder.value(id));
+            return direction.isAscending()
+                    ? cb.and(cb.greaterThanOrEqualTo(key, value), cb.greaterThan(row, cursor))
+                    : cb.and(cb.lessThanOrEqualTo(key, value), cb.lessThan(row, cursor));
+        };
+    }
+    
+    /**
+     * Keyset predicate for an ordering by ID alone.
+     */
+    public static Specification<Product> afterId(Sort.Direction direction, Long id) {
+        return (root, query, cb) -> direction.isAscending()
+                ? cb.greaterThan(root.get("id"), id)
+                : cb.lessThan(root.get("id"), id);
+    }
+}
@@ -0,0 +1,41 @@
+package com.dm.ecommerce.repository;
+
+import com.dm.ecommerce.model.RefreshToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    
+    @Query("SELECT r FROM RefreshToken r WHERE r.tokenHash = :tokenHash AND r.expiresAt > :now")
+    Optional<RefreshToken> findActive(@Param("tokenHash") String tokenHash, @Param("now") LocalDateTime now);
+    
+    /**
+     * Replace a token's hash and expiry, keeping its issue time, only if it still holds the presented hash.
+     * Returns 0 when a concurrent refresh already rotated it.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.tokenHash = :newHash, r.expiresAt = :expiresAt " +
+           "WHERE r.id = :id AND r.tokenHash = :oldHash")
+    int rotate(@Param("id") Long id, @Param("oldHash") String oldHash,
+               @Param("newHash") String newHash, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+    
+    @Modifying
+    @Query("DELETE FROM RefreshToken r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT r.id FROM RefreshToken r WHERE r.expiresAt <= :now ORDER BY r.id")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+}
@@ -0,0 +1,21 @@
+package com.dm.ecommerce.repository;
+
+import com.dm.ecommerce.model.RetiredRefreshToken;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RetiredRefreshTokenRepository extends JpaRepository<RetiredRefreshToken, Long> {
+    
+    Optional<RetiredRefreshToken> findByTokenHash(String tokenHash);
+    
+    @Query("SELECT r.id FROM RetiredRefreshToken r WHERE r.expiresAt <= :now ORDER BY r.id")
+    List<Long> findExpiredIds(@Param("now") LocalDateTime now, Pageable pageable);
+}
@@ -2,12 +2,21 @@ package com.dm.ecommerce.repository;
 
 import com.dm.ecommerce.model.Review;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByProductId(Long productId);
+    List<Review> findByProductIdIn(Collection<Long> productIds);
     List<Review> findByUserId(Long userId);
+    
+    /**
+     * Average rating per reviewed product, as {@code [productId, averageRating]} rows.
+     */
+    @Query("SELECT r.product.id, AVG(r.rating) FROM Review r GROUP BY r.product.id")
+    List<Object[]> findAverageRatingPerProduct();
 } 
\ No newline at end of file
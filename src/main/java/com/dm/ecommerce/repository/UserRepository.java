@@ -1,9 +1,13 @@
 package com.dm.ecommerce.repository;
 
 import com.dm.ecommerce.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +16,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    
+    /**
+     * Find the ID and password hash of users whose hash is neither at the given version nor
+     * wrapped, in ID order.
+     */
+    @Query("SELECT u.id, u.password FROM User u WHERE u.id > :afterId"
+            + " AND u.password NOT LIKE CONCAT('{', :versionId, '}%')"
+            + " AND u.password NOT LIKE CONCAT('{', :wrappedId, '}%') ORDER BY u.id")
+    List<Object[]> findPasswordsToMigrate(@Param("afterId") Long afterId, @Param("versionId") String versionId,
+                                          @Param("wrappedId") String wrappedId, Pageable pageable);
+    
+    @Query("SELECT COUNT(u) FROM User u WHERE u.password NOT LIKE CONCAT('{', :versionId, '}%')"
+            + " AND u.password NOT LIKE CONCAT('{', :wrappedId, '}%')")
+    long countPasswordsToMigrate(@Param("versionId") String versionId, @Param("wrappedId") String wrappedId);
+    
+    @Query("SELECT COUNT(u) FROM User u WHERE u.password NOT LIKE CONCAT('{', :versionId, '}%')")
+    long countPasswordsNotAtVersion(@Param("versionId") String versionId);
 } 
\ No newline at end of file
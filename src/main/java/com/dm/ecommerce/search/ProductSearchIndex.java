@@ -0,0 +1,373 @@
+package com.dm.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ * Supports BM25 ranking, prefix matching on the last query term (search as you type)
+ * and typo-tolerant suggestions for query terms that match nothing. Suggestions only
+ * compare the query term against indexed terms sharing enough of its bigrams, at most
+ * {@value #MAX_SUGGESTION_CANDIDATES} of them, rather than against the whole vocabulary.
+ * <p>
+ * Reads are concurrent; writes take an exclusive lock.
+ */
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Name terms count more than description terms
+    private static final int NAME_WEIGHT = 2;
+
+    // Prefix matches score below exact matches
+    private static final double PREFIX_WEIGHT = 0.5;
+
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final int MAX_SUGGESTION_CANDIDATES = 100;
+
+    // Term -> (product ID -> weighted term frequency)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // Bigram, with ^ and $ marking the ends of the term -> indexed terms containing it
+    private final Map<String, Set<String>> bigramTerms = new HashMap<>();
+
+    // Product ID -> indexed document
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record Document(Map<String, Integer> termFrequencies, int length) {
+    }
+
+    private record ScoredId(long id, double score) {
+    }
+
+    /**
+     * Result page of a search.
+     *
+     * @param productIds  matching product IDs for the requested page, best first
+     * @param totalHits   number of matching products
+     * @param suggestions spelling suggestions for query terms that matched nothing
+     */
+    public record SearchResult(List<Long> productIds, int totalHits, List<String> suggestions) {
+    }
+
+    /**
+     * Add or replace a product in the index.
+     *
+     * @param id          the product ID
+     * @param name        the product name
+     * @param description the product description
+     */
+    public void index(long id, String name, String description) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String term : tokenize(name)) {
+            termFrequencies.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(description)) {
+            termFrequencies.merge(term, 1, Integer::sum);
+        }
+        int length = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            termFrequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> {
+                for (String bigram : bigrams(t)) {
+                    bigramTerms.computeIfAbsent(bigram, b -> new HashSet<>()).add(t);
+                }
+                return new HashMap<>();
+            }).put(id, frequency));
+            documents.put(id, new Document(termFrequencies, length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a product from the index.
+     *
+     * @param id the product ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of indexed products.
+     *
+     * @return the number of indexed products
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search the index.
+     *
+     * @param query the free-text query
+     * @param page  the page number (0-based)
+     * @param size  the page size
+     * @return the requested page of matching product IDs
+     */
+    public SearchResult search(String query, int page, int size) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new SearchResult(List.of(), 0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = new HashMap<>();
+            List<String> suggestions = new ArrayList<>();
+            double averageLength = documents.isEmpty() ? 0 : (double) totalLength / documents.size();
+
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                boolean lastTerm = i == terms.size() - 1;
+                boolean matched = false;
+
+                Map<Long, Integer> exact = postings.get(term);
+                if (exact != null) {
+                    score(exact, 1.0, averageLength, scores);
+                    matched = true;
+                }
+
+                // Expand the last term, or any term without an exact match, by prefix
+                if (lastTerm || exact == null) {
+                    int expansions = 0;
+                    for (Map.Entry<String, Map<Long, Integer>> entry
+                            : postings.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+                        if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                            break;
+                        }
+                        score(entry.getValue(), PREFIX_WEIGHT, averageLength, scores);
+                        matched = true;
+                    }
+                }
+
+                if (!matched) {
+                    String suggestion = suggest(term);
+                    if (suggestion != null) {
+                        suggestions.add(suggestion);
+                    }
+                }
+            }
+
+            return new SearchResult(topPage(scores, page, size), scores.size(), suggestions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(long id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.termFrequencies().keySet()) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(id);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                    removeBigrams(term);
+                }
+            }
+        }
+        totalLength -= document.length();
+    }
+
+    private void removeBigrams(String term) {
+        for (String bigram : bigrams(term)) {
+            Set<String> terms = bigramTerms.get(bigram);
+            if (terms != null) {
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    bigramTerms.remove(bigram);
+                }
+            }
+        }
+    }
+
+    private void score(Map<Long, Integer> termPostings, double weight, double averageLength,
+                       Map<Long, Double> scores) {
+        int documentCount = documents.size();
+        int documentFrequency = termPostings.size();
+        double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+        termPostings.forEach((id, frequency) -> {
+            int length = documents.get(id).length();
+            double norm = K1 * (1 - B + B * (averageLength > 0 ? length / averageLength : 1));
+            double termScore = idf * (frequency * (K1 + 1)) / (frequency + norm);
+            scores.merge(id, weight * termScore, Double::sum);
+        });
+    }
+
+    /**
+     * Select one page of results with a bounded heap instead of sorting every hit.
+     */
+    private List<Long> topPage(Map<Long, Double> scores, int page, int size) {
+        if (page < 0 || size <= 0 || scores.isEmpty()) {
+            return List.of();
+        }
+        // In long, so a huge page cannot overflow into a small or negative offset
+        long from = (long) page * size;
+        if (from >= scores.size()) {
+            return List.of();
+        }
+        int capacity = (int) Math.min(from + size, scores.size());
+
+        // Worst result at the head: lowest score, then highest ID
+        Comparator<ScoredId> worstFirst = Comparator.comparingDouble(ScoredId::score)
+                .thenComparing(ScoredId::id, Comparator.reverseOrder());
+        PriorityQueue<ScoredId> heap = new PriorityQueue<>(capacity + 1, worstFirst);
+
+        scores.forEach((id, score) -> {
+            heap.offer(new ScoredId(id, score));
+            if (heap.size() > capacity) {
+                heap.poll();
+            }
+        });
+
+        List<ScoredId> ranked = new ArrayList<>(heap);
+        ranked.sort(worstFirst.reversed());
+
+        return ranked.subList((int) from, ranked.size()).stream()
+                .map(ScoredId::id)
+                .toList();
+    }
+
+    /**
+     * Find the most frequent indexed term within a small edit distance of the given term.
+     * Each edit changes at most two of a term's bigrams, so only terms sharing all but
+     * {@code 2 * maxDistance} of its distinct bigrams can be close enough; those sharing
+     * the most are compared first, up to {@link #MAX_SUGGESTION_CANDIDATES}.
+     */
+    private String suggest(String term) {
+        int maxDistance = term.length() <= 4 ? 1 : 2;
+        Set<String> termBigrams = bigrams(term);
+        int minShared = termBigrams.size() - 2 * maxDistance;
+        if (minShared < 1) {
+            return null;
+        }
+
+        Map<String, Integer> shared = new HashMap<>();
+        for (String bigram : termBigrams) {
+            for (String candidate : bigramTerms.getOrDefault(bigram, Set.of())) {
+                if (Math.abs(candidate.length() - term.length()) <= maxDistance) {
+                    shared.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        List<String> candidates = shared.entrySet().stream()
+                .filter(entry -> entry.getValue() >= minShared)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(MAX_SUGGESTION_CANDIDATES)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        String best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        int bestFrequency = 0;
+        for (String candidate : candidates) {
+            int distance = editDistance(term, candidate, maxDistance);
+            int frequency = postings.get(candidate).size();
+            if (distance <= maxDistance
+                    && (distance < bestDistance || (distance == bestDistance && frequency > bestFrequency))) {
+                best = candidate;
+                bestDistance = distance;
+                bestFrequency = frequency;
+            }
+        }
+        return best;
+    }
+
+    private static Set<String> bigrams(String term) {
+        String padded = "^" + term + "$";
+        Set<String> bigrams = new HashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            bigrams.add(padded.substring(i, i + 2));
+        }
+        return bigrams;
+    }
+
+    /**
+     * Levenshtein distance, abandoning early once every cell in a row exceeds {@code max}.
+     */
+    private static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Split text into lower-case alphanumeric terms.
+     *
+     * @param text the text to tokenize
+     * @return the terms, in order
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (!term.isEmpty()) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (!term.isEmpty()) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,65 @@
+package com.dm.ecommerce.security;
+
+import com.dm.ecommerce.security.session.SessionSecurityContextRepository;
+import com.dm.ecommerce.service.AuthModeService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Security context repository that follows the current authentication mode per request.
+ * STATEFUL mode keeps the context in the session store; STATELESS mode keeps it only for
+ * the duration of the request, so switching modes needs no filter chain rebuild.
+ */
+@Component
+public class ModeAwareSecurityContextRepository implements SecurityContextRepository {
+    
+    private final SecurityContextRepository requestRepository = new RequestAttributeSecurityContextRepository();
+    
+    @Autowired
+    private SessionSecurityContextRepository sessionRepository;
+    
+    @Autowired
+    private AuthModeService authModeService;
+    
+    @Override
+    @SuppressWarnings("deprecation")
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        return delegate().loadContext(requestResponseHolder);
+    }
+    
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        return delegate().loadDeferredContext(request);
+    }
+    
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        delegate().saveContext(context, request, response);
+    }
+    
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return delegate().containsContext(request);
+    }
+    
+    /**
+     * End the request's stored session, whatever the current mode.
+     *
+     * @param request  the HTTP request
+     * @param response the HTTP response
+     */
+    public void removeContext(HttpServletRequest request, HttpServletResponse response) {
+        sessionRepository.removeContext(request, response);
+    }
+    
+    private SecurityContextRepository delegate() {
+        return authModeService.isStateful() ? sessionRepository : requestRepository;
+    }
+}
@@ -0,0 +1,146 @@
+package com.dm.ecommerce.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned password hashes.
+ * Stored hashes are prefixed with their version, e.g. {@code {bcrypt12}$2a$12$...}, where the
+ * version names the BCrypt work factor. Hashes below the current version are re-encoded
+ * on the user's next successful login.
+ * <p>
+ * Hashes of users who do not log in can be strengthened without their password by wrapping:
+ * {@code {bcrypt-wrapped}<old salt><BCrypt of the old hash>}. A password matches if the
+ * old hash recomputed from it with the old salt matches the outer hash. Wrapped hashes are
+ * never written for new passwords and are replaced by a plain current hash on login.
+ */
+public final class PasswordHashVersions {
+    
+    public static final String VERSION_PREFIX = "{";
+    
+    private static final String BCRYPT_ID = "bcrypt";
+    private static final String WRAPPED_ID = "bcrypt-wrapped";
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 31;
+    
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$.{53}$");
+    private static final Pattern VERSIONED_BCRYPT_HASH = Pattern.compile("^\\{" + BCRYPT_ID + "(\\d+)}(.*)$");
+    // Version, cost and salt of a BCrypt hash, which is all it takes to recompute the hash
+    private static final int SALT_LENGTH = 29;
+    
+    private PasswordHashVersions() {
+    }
+    
+    /**
+     * Get the version ID for a BCrypt work factor.
+     *
+     * @param strength the BCrypt work factor
+     * @return the version ID
+     */
+    public static String versionId(int strength) {
+        return BCRYPT_ID + strength;
+    }
+    
+    /**
+     * Get the version ID of wrapped hashes.
+     *
+     * @return the version ID
+     */
+    public static String wrappedVersionId() {
+        return WRAPPED_ID;
+    }
+    
+    /**
+     * Create an encoder that writes the current version and verifies every known version.
+     * Unversioned legacy BCrypt hashes and wrapped hashes are verified as well and reported
+     * as needing an upgrade.
+     *
+     * @param currentStrength the BCrypt work factor for new hashes
+     * @return the delegating password encoder
+     */
+    public static DelegatingPasswordEncoder createEncoder(int currentStrength) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            encoders.put(versionId(strength), new BCryptPasswordEncoder(strength));
+        }
+        encoders.put(WRAPPED_ID, new WrappedBCryptPasswordEncoder());
+        
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(versionId(currentStrength), encoders);
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder(currentStrength));
+        return encoder;
+    }
+    
+    /**
+     * Prefix an unversioned legacy BCrypt hash with the version matching its work factor.
+     *
+     * @param hash the stored hash
+     * @return the versioned hash, or null if the hash is not an unversioned BCrypt hash
+     */
+    public static String versionLegacyHash(String hash) {
+        if (hash == null || hash.startsWith(VERSION_PREFIX)) {
+            return null;
+        }
+        Matcher matcher = BCRYPT_HASH.matcher(hash);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return "{" + versionId(Integer.parseInt(matcher.group(1))) + "}" + hash;
+    }
+    
+    /**
+     * Re-encode a BCrypt hash below the current work factor by wrapping it in a hash at
+     * the current work factor.
+     *
+     * @param hash            the stored hash, versioned or not
+     * @param currentStrength the BCrypt work factor for new hashes
+     * @return the wrapped hash, or null if the hash is not a BCrypt hash below the current work factor
+     */
+    public static String wrapWeakHash(String hash, int currentStrength) {
+        String bcryptHash = hash;
+        if (hash != null && hash.startsWith(VERSION_PREFIX)) {
+            Matcher versioned = VERSIONED_BCRYPT_HASH.matcher(hash);
+            bcryptHash = versioned.matches() ? versioned.group(2) : null;
+        }
+        if (bcryptHash == null) {
+            return null;
+        }
+        Matcher matcher = BCRYPT_HASH.matcher(bcryptHash);
+        if (!matcher.matches() || Integer.parseInt(matcher.group(1)) >= currentStrength) {
+            return null;
+        }
+        return "{" + WRAPPED_ID + "}" + bcryptHash.substring(0, SALT_LENGTH)
+                + BCrypt.hashpw(bcryptHash, BCrypt.gensalt(currentStrength));
+    }
+    
+    /**
+     * Verifies wrapped hashes; never encodes, so new hashes are always plain.
+     */
+    private static final class WrappedBCryptPasswordEncoder implements PasswordEncoder {
+        
+        @Override
+        public String encode(CharSequence rawPassword) {
+            throw new UnsupportedOperationException("Wrapped hashes are only written by re-encoding an existing hash");
+        }
+        
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            if (rawPassword == null || encodedPassword == null || encodedPassword.length() <= SALT_LENGTH) {
+                return false;
+            }
+            try {
+                String innerHash = BCrypt.hashpw(rawPassword.toString(), encodedPassword.substring(0, SALT_LENGTH));
+                return BCrypt.checkpw(innerHash, encodedPassword.substring(SALT_LENGTH));
+            } catch (IllegalArgumentException e) {
+                // Malformed salt or outer hash
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.dm.ecommerce.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the password hashing pool and its queue are full.
+ * Clients should retry later; REST requests get a 429 response.
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class PasswordHashingOverloadException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public PasswordHashingOverloadException() {
+        super("Too many concurrent sign-in requests, please retry shortly");
+    }
+}
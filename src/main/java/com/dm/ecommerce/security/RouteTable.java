@@ -0,0 +1,176 @@
+package com.dm.ecommerce.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Security route table compiled into a path-segment prefix trie.
+ * A request's access level is resolved with one walk over its path segments, once per
+ * request, instead of evaluating a list of path matchers in order. Routes are either
+ * exact ({@code /favicon.ico}) or prefixes ({@code /css/**}), optionally for one HTTP method;
+ * the longest matching route wins. Requests are matched on their decoded path, so
+ * {@code /api/%61dmin/users} resolves like {@code /api/admin/users}.
+ */
+public class RouteTable {
+    
+    /**
+     * Access level of a route.
+     */
+    public enum Access {
+        // Bypasses the security filter chain entirely
+        IGNORED,
+        // Runs through the security filter chain but is open to everyone
+        PUBLIC,
+        // Requires the ADMIN role
+        ADMIN,
+        // Requires an authenticated user
+        AUTHENTICATED
+    }
+    
+    private static final String ANY_METHOD = "*";
+    private static final String ATTRIBUTE = RouteTable.class.getName() + ".ACCESS";
+    
+    private final Node root = new Node();
+    
+    // Matchers are created while the security configuration is built
+    private final Map<Access, RequestMatcher> matchers = new EnumMap<>(Access.class);
+    
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        // HTTP method (or *) -> access when the path ends at this node
+        private final Map<String, Access> exact = new HashMap<>();
+        // HTTP method (or *) -> access for this path and everything below it
+        private final Map<String, Access> prefix = new HashMap<>();
+    }
+    
+    /**
+     * Add a route for every HTTP method.
+     *
+     * @param pattern an exact path, or a path ending in {@code /**}
+     * @param access  the access level
+     * @return this route table
+     */
+    public RouteTable route(String pattern, Access access) {
+        return route(null, pattern, access);
+    }
+    
+    /**
+     * Add a route for one HTTP method.
+     *
+     * @param method  the HTTP method, or null for every method
+     * @param pattern an exact path, or a path ending in {@code /**}
+     * @param access  the access level
+     * @return this route table
+     */
+    public RouteTable route(HttpMethod method, String pattern, Access access) {
+        boolean isPrefix = pattern.endsWith("/**");
+        String path = isPrefix ? pattern.substring(0, pattern.length() - 3) : pattern;
+        
+        Node node = root;
+        for (String segment : segments(path)) {
+            node = node.children.computeIfAbsent(segment, s -> new Node());
+        }
+        
+        String methodKey = method != null ? method.name() : ANY_METHOD;
+        (isPrefix ? node.prefix : node.exact).put(methodKey, access);
+        return this;
+    }
+    
+    /**
+     * Resolve the access level of a request, caching it on the request.
+     * The request is matched on its decoded path within the application, without the
+     * context path or path parameters.
+     *
+     * @param request the HTTP request
+     * @return the access level of the longest matching route, or AUTHENTICATED if none match
+     */
+    public Access resolve(HttpServletRequest request) {
+        Object cached = request.getAttribute(ATTRIBUTE);
+        if (cached instanceof Access access) {
+            return access;
+        }
+        
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        Access access = resolve(request.getMethod(), path);
+        request.setAttribute(ATTRIBUTE, access);
+        return access;
+    }
+    
+    /**
+     * Resolve the access level of a method and path. A path with a trailing slash
+     * matches the prefix routes of its segments but no exact route.
+     *
+     * @param method the HTTP method
+     * @param path   the decoded request path, without the context path
+     * @return the access level of the longest matching route, or AUTHENTICATED if none match
+     */
+    public Access resolve(String method, String path) {
+        Node node = root;
+        Access match = forMethod(node.prefix, method);
+        
+        int start = 1;
+        while (node != null && start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                node = node.children.get(path.substring(start, end));
+                if (node != null) {
+                    Access prefixAccess = forMethod(node.prefix, method);
+                    if (prefixAccess != null) {
+                        match = prefixAccess;
+                    }
+                }
+            }
+            start = end + 1;
+        }
+        
+        if (node != null && (path.length() <= 1 || !path.endsWith("/"))) {
+            Access exactAccess = forMethod(node.exact, method);
+            if (exactAccess != null) {
+                match = exactAccess;
+            }
+        }
+        return match != null ? match : Access.AUTHENTICATED;
+    }
+    
+    /**
+     * Create a request matcher for one access level.
+     *
+     * @param access the access level
+     * @return a matcher for requests resolving to that access level
+     */
+    public RequestMatcher matcher(Access access) {
+        return matchers.computeIfAbsent(access, a -> new RequestMatcher() {
+            @Override
+            public boolean matches(HttpServletRequest request) {
+                return resolve(request) == a;
+            }
+            
+            @Override
+            public String toString() {
+                return "RouteTable[" + a + "]";
+            }
+        });
+    }
+    
+    private static Access forMethod(Map<String, Access> routes, String method) {
+        if (routes.isEmpty()) {
+            return null;
+        }
+        Access access = routes.get(method);
+        return access != null ? access : routes.get(ANY_METHOD);
+    }
+    
+    private static String[] segments(String path) {
+        String trimmed = path.startsWith("/") ? path.substring(1) : path;
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/");
+    }
+}
@@ -0,0 +1,86 @@
+package com.dm.ecommerce.security;
+
+import com.dm.ecommerce.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Authenticated user principal carrying the user ID alongside the username and authorities.
+ * Principals rebuilt from JWT claims have no password.
+ */
+@Getter
+@AllArgsConstructor
+public class UserPrincipal implements UserDetails {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public static final String ROLE_PREFIX = "ROLE_";
+    
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final Collection<? extends GrantedAuthority> authorities;
+    
+    /**
+     * Create a principal from a user entity.
+     *
+     * @param user the user entity
+     * @return the principal
+     */
+    public static UserPrincipal create(User user) {
+        List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
+                .map(role -> new SimpleGrantedAuthority(ROLE_PREFIX + role.name()))
+                .toList();
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(), authorities);
+    }
+    
+    /**
+     * Create a principal from verified token claims.
+     *
+     * @param id       the user ID
+     * @param username the username
+     * @param roles    the role names, without the ROLE_ prefix
+     * @return the principal
+     */
+    public static UserPrincipal create(Long id, String username, Collection<String> roles) {
+        List<SimpleGrantedAuthority> authorities = roles.stream()
+                .map(role -> new SimpleGrantedAuthority(ROLE_PREFIX + role))
+                .toList();
+        return new UserPrincipal(id, username, null, authorities);
+    }
+    
+    public boolean hasRole(User.Role role) {
+        String authority = ROLE_PREFIX + role.name();
+        return authorities.stream().anyMatch(granted -> authority.equals(granted.getAuthority()));
+    }
+    
+    public boolean isAdmin() {
+        return hasRole(User.Role.ADMIN);
+    }
+    
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+    
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+    
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
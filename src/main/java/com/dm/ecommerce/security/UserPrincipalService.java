@@ -0,0 +1,113 @@
+package com.dm.ecommerce.security;
+
+import com.dm.ecommerce.security.jwt.JwtUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Resolves the principal for a verified JWT.
+ * Tokens carrying user ID and role claims are trusted as-is, without a database lookup.
+ * Tokens without those claims, or issued before the user was revoked, fall back to
+ * loading the user, through a short-lived principal cache.
+ * <p>
+ * Revocations are bounded; if more users are revoked within a token lifetime than it
+ * holds, some are evicted and their older tokens trusted again, which is logged.
+ */
+@Service
+public class UserPrincipalService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalService.class);
+    
+    @Autowired
+    private UserDetailsService userDetailsService;
+    
+    @Value("${jwt.principal-cache-ttl:60s}")
+    private Duration principalCacheTtl;
+    
+    @Value("${jwt.expiration}")
+    private long jwtExpirationMs;
+    
+    @Value("${jwt.max-revoked-users:10000}")
+    private long maxRevokedUsers;
+    
+    // Username -> principal loaded from the database
+    private Cache<String, UserDetails> principals;
+    
+    // User ID -> time of the last revocation; entries outlive every token issued before them
+    private Cache<Long, Instant> revocations;
+    
+    @PostConstruct
+    public void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(principalCacheTtl)
+                .build();
+        revocations = Caffeine.newBuilder()
+                .maximumSize(maxRevokedUsers)
+                .expireAfterWrite(Duration.ofMillis(jwtExpirationMs))
+                .removalListener((Long userId, Instant revokedAt, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        logger.warn("Revocations are full; tokens issued to user {} before {} are trusted again", userId, revokedAt);
+                    }
+                })
+                .build();
+    }
+    
+    /**
+     * Resolve the principal for verified token claims.
+     *
+     * @param claims the verified claims
+     * @return an optional containing the principal, or empty if the user no longer exists
+     */
+    public Optional<UserDetails> resolvePrincipal(Claims claims) {
+        Long userId = claims.get(JwtUtils.CLAIM_USER_ID, Long.class);
+        Collection<?> roles = claims.get(JwtUtils.CLAIM_ROLES, Collection.class);
+        
+        if (userId != null && roles != null && !isRevoked(userId, claims.getIssuedAt())) {
+            return Optional.of(UserPrincipal.create(userId, claims.getSubject(),
+                    roles.stream().map(String::valueOf).toList()));
+        }
+        
+        try {
+            return Optional.of(principals.get(claims.getSubject(), userDetailsService::loadUserByUsername));
+        } catch (UsernameNotFoundException e) {
+            logger.warn("JWT subject no longer exists: {}", claims.getSubject());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Stop trusting the claims of tokens issued to a user until now, e.g. after their
+     * roles or username change. Those tokens are resolved against the database instead.
+     *
+     * @param userId   the user ID
+     * @param username the user's username
+     */
+    public void revoke(Long userId, String username) {
+        revocations.put(userId, Instant.now());
+        principals.invalidate(username);
+    }
+    
+    private boolean isRevoked(Long userId, Date issuedAt) {
+        Instant revokedAt = revocations.getIfPresent(userId);
+        // Issued-at has second precision, so a token from the same second counts as revoked
+        return revokedAt != null && (issuedAt == null || !issuedAt.toInstant().isAfter(revokedAt));
+    }
+}
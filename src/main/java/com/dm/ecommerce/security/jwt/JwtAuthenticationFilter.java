@@ -1,6 +1,8 @@
 package com.dm.ecommerce.security.jwt;
 
+import com.dm.ecommerce.security.UserPrincipalService;
 import com.dm.ecommerce.service.AuthModeService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,13 +11,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Filter for JWT-based authentication.
@@ -27,7 +28,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtils jwtUtils;
     
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserPrincipalService userPrincipalService;
     
     @Autowired
     private AuthModeService authModeService;
@@ -42,11 +43,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
         
-        String jwt = parseJwt(request);
+        String jwt = jwtUtils.parseJwt(request);
         
-        if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-            String username = jwtUtils.getUsernameFromJwtToken(jwt);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        Optional<Claims> claims = jwt != null ? jwtUtils.parseJwtToken(jwt) : Optional.empty();
+        
+        Optional<UserDetails> principal = claims.flatMap(userPrincipalService::resolvePrincipal);
+        
+        if (principal.isPresent()) {
+            UserDetails userDetails = principal.get();
             
             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                     userDetails, null, userDetails.getAuthorities());
@@ -57,20 +61,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
-    
-    /**
-     * Extract JWT token from the Authorization header.
-     *
-     * @param request the HTTP request
-     * @return the JWT token, or null if not found
-     */
-    private String parseJwt(HttpServletRequest request) {
-        String headerAuth = request.getHeader("Authorization");
-        
-        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
-            return headerAuth.substring(7);
-        }
-        
-        return null;
-    }
 } 
\ No newline at end of file
@@ -1,33 +1,94 @@
 package com.dm.ecommerce.security.jwt;
 
 import com.dm.ecommerce.model.User;
+import com.dm.ecommerce.security.UserPrincipal;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Utility class for JWT token generation and validation.
+ * The signing key, the verification keys and the parser are built once at startup;
+ * tokens carry a key ID so keys can be rotated while older tokens remain valid.
  */
 @Component
 public class JwtUtils {
     
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
     
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    
     @Value("${jwt.secret}")
     private String jwtSecret;
     
+    @Value("${jwt.key-id:primary}")
+    private String jwtKeyId;
+    
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
     
+    @Autowired
+    private Environment environment;
+    
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    
+    private Key signingKey;
+    
+    private Map<String, Key> verificationKeys;
+    
+    private JwtParser jwtParser;
+    
+    /**
+     * Build the signing key, the verification keys and the parser.
+     * Retired keys that should still verify tokens are configured as {@code jwt.previous-keys.<kid>=<secret>}.
+     */
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        
+        Map<String, Key> keys = new HashMap<>();
+        Binder.get(environment)
+                .bind("jwt.previous-keys", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of())
+                .forEach((keyId, secret) -> keys.put(keyId, Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8))));
+        keys.put(jwtKeyId, signingKey);
+        verificationKeys = Map.copyOf(keys);
+        
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    // jjwt 0.11 declares the header raw; JwsHeader<?> would not override it
+                    @SuppressWarnings("rawtypes")
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header.getKeyId());
+                    }
+                })
+                .build();
+    }
+    
     /**
      * Generate a JWT token for an authenticated user.
      *
@@ -36,13 +97,14 @@ public class JwtUtils {
      */
     public String generateJwtToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        Long userId = userPrincipal instanceof UserPrincipal principal ? principal.getId() : null;
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(authority -> authority.startsWith(UserPrincipal.ROLE_PREFIX)
+                        ? authority.substring(UserPrincipal.ROLE_PREFIX.length()) : authority)
+                .toList();
         
-        return Jwts.builder()
-                .setSubject(userPrincipal.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+        return buildToken(userPrincipal.getUsername(), userId, roles);
     }
     
     /**
@@ -52,12 +114,80 @@ public class JwtUtils {
      * @return the generated JWT token
      */
     public String generateJwtToken(User user) {
-        return Jwts.builder()
-                .setSubject(user.getUsername())
+        List<String> roles = user.getRoles().stream()
+                .map(User.Role::name)
+                .toList();
+        
+        return buildToken(user.getUsername(), user.getId(), roles);
+    }
+    
+    private String buildToken(String username, Long userId, List<String> roles) {
+        JwtBuilder builder = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, jwtKeyId)
+                .setSubject(username)
+                .claim(CLAIM_ROLES, roles)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs));
+        
+        if (userId != null) {
+            builder.claim(CLAIM_USER_ID, userId);
+        }
+        
+        return builder.signWith(signingKey, SignatureAlgorithm.HS256).compact();
+    }
+    
+    /**
+     * Verify a JWT token and return its claims, parsing the token only once.
+     *
+     * @param token the JWT token
+     * @return an optional containing the verified claims, or empty if the token is invalid
+     */
+    public Optional<Claims> parseJwtToken(String token) {
+        String key = verifiedTokenCache.key(token);
+        if (verifiedTokenCache.isDenied(key)) {
+            logger.debug("Rejected revoked JWT token");
+            return Optional.empty();
+        }
+        
+        Claims cached = verifiedTokenCache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        
+        try {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            verifiedTokenCache.put(key, claims);
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Revoke a JWT token so it is rejected until it expires.
+     *
+     * @param token the JWT token
+     */
+    public void revokeJwtToken(String token) {
+        parseJwtToken(token).ifPresent(claims ->
+                verifiedTokenCache.deny(verifiedTokenCache.key(token), claims.getExpiration()));
+    }
+    
+    /**
+     * Extract the JWT token from the Authorization header.
+     *
+     * @param request the HTTP request
+     * @return the JWT token, or null if not found
+     */
+    public String parseJwt(HttpServletRequest request) {
+        String headerAuth = request.getHeader("Authorization");
+        
+        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+            return headerAuth.substring(7);
+        }
+        
+        return null;
     }
     
     /**
@@ -67,10 +197,7 @@ public class JwtUtils {
      * @return the username extracted from the token
      */
     public String getUsernameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
+        return jwtParser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
@@ -82,25 +209,24 @@ public class JwtUtils {
      * @return true if the token is valid, false otherwise
      */
     public boolean validateJwtToken(String authToken) {
-        try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
-        } catch (JwtException e) {
-            logger.error("Invalid JWT token: {}", e.getMessage());
-        }
-        return false;
+        return parseJwtToken(authToken).isPresent();
     }
     
     /**
-     * Get the signing key for JWT token operations.
+     * Resolve the verification key for a token's key ID.
+     * Tokens issued before key IDs were introduced are verified with the current key.
      *
-     * @return the signing key
+     * @param keyId the key ID from the token header, may be null
+     * @return the verification key
      */
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private Key resolveKey(String keyId) {
+        if (keyId == null) {
+            return signingKey;
+        }
+        Key key = verificationKeys.get(keyId);
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown JWT key ID: " + keyId);
+        }
+        return key;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package com.dm.ecommerce.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of verified JWT claims, keyed by a hash of the token.
+ * Entries live until the token expires, so a token seen again skips signature
+ * verification and claims decoding. Revoked tokens are kept in a deny-set,
+ * also until they expire, which is consulted before the cache.
+ * <p>
+ * Both are held in memory on each node: a token revoked through one node is still
+ * accepted by the others until it expires. The deny-set is bounded too; if more
+ * unexpired tokens are revoked than it holds, some are evicted and accepted again
+ * until they expire, which is logged.
+ */
+@Component
+public class VerifiedTokenCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+    
+    public static final String CACHE_NAME = "jwt.verified-tokens";
+    
+    @Value("${jwt.token-cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${jwt.token-cache.max-denied:10000}")
+    private long maxDenied;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Token hash -> verified claims
+    private Cache<String, Claims> verified;
+    
+    // Token hash -> token expiry
+    private Cache<String, Instant> denied;
+    
+    @PostConstruct
+    public void init() {
+        verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(untilExpiry((Claims claims) -> claims.getExpiration().toInstant()))
+                .recordStats()
+                .build();
+        denied = Caffeine.newBuilder()
+                .maximumSize(maxDenied)
+                .expireAfter(untilExpiry(Function.<Instant>identity()))
+                .removalListener((String key, Instant expiry, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        logger.warn("Deny-set is full; a revoked JWT token is accepted again until {}", expiry);
+                    }
+                })
+                .build();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".hit.ratio", verified, cache -> cache.stats().hitRate())
+                .description("Share of JWT verifications served from the verified-token cache")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Hash a token into its cache key.
+     *
+     * @param token the JWT token
+     * @return the SHA-256 hash of the token, base64 encoded
+     */
+    public String key(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    /**
+     * Get the verified claims for a token, if they are cached and not expired.
+     *
+     * @param key the token hash
+     * @return the claims, or null on a miss
+     */
+    public Claims get(String key) {
+        return verified.getIfPresent(key);
+    }
+    
+    /**
+     * Cache the verified claims of a token until the token expires.
+     * Tokens without an expiry are not cached.
+     *
+     * @param key    the token hash
+     * @param claims the verified claims
+     */
+    public void put(String key, Claims claims) {
+        if (claims.getExpiration() != null) {
+            verified.put(key, claims);
+        }
+    }
+    
+    /**
+     * Check whether a token has been revoked.
+     *
+     * @param key the token hash
+     * @return true if the token is in the deny-set
+     */
+    public boolean isDenied(String key) {
+        return denied.getIfPresent(key) != null;
+    }
+    
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param key        the token hash
+     * @param expiration the token expiry
+     */
+    public void deny(String key, Date expiration) {
+        if (expiration != null) {
+            denied.put(key, expiration.toInstant());
+        }
+        verified.invalidate(key);
+    }
+    
+    private static <V> Expiry<String, V> untilExpiry(Function<V, Instant> expiryOf) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, V value, long currentTime) {
+                return Math.max(0, expiryOf.apply(value).toEpochMilli() - System.currentTimeMillis()) * 1_000_000;
+            }
+            
+            @Override
+            public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+            
+            @Override
+            public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
@@ -0,0 +1,318 @@
+package com.dm.ecommerce.security.ratelimit;
+
+import com.dm.ecommerce.graphql.ReusedDocumentProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.language.Argument;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.ObjectField;
+import graphql.language.ObjectValue;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.StringValue;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+import graphql.parser.Parser;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Throttles authentication attempts before any password hashing happens.
+ * Applies to the routes configured under {@code login-rate-limit.routes}. On {@code /graphql}
+ * only requests carrying the login or registration mutations are counted, each mutation
+ * field as one attempt, including aliased fields and fields inside fragments. Attempts are
+ * limited both per client IP and per username; rejected requests get a 429 with Retry-After.
+ */
+@Component
+@Slf4j
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+    
+    private static final String GRAPHQL_PATH = "/graphql";
+    
+    // Auth mutation -> argument holding the credentials
+    private static final Map<String, String> AUTH_MUTATIONS = Map.of("login", "login", "registerUser", "user");
+    
+    @Autowired
+    private LoginRateLimitProperties properties;
+    
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !properties.getRoutes().containsKey(routeOf(request));
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        
+        String route = routeOf(request);
+        LoginRateLimitProperties.Limit limit = properties.getRoutes().get(route);
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        boolean graphQl = GRAPHQL_PATH.equals(route);
+        
+        List<String> usernames;
+        if (graphQl) {
+            usernames = graphQlAuthUsernames(cachedRequest);
+            if (usernames == null) {
+                // Not an authentication request
+                filterChain.doFilter(cachedRequest, response);
+                return;
+            }
+        } else {
+            usernames = new ArrayList<>();
+            usernames.add(jsonUsername(cachedRequest.getBody()));
+        }
+        
+        // One IP token per attempt, so batching attempts into one request does not multiply them
+        long retryAfter = 0;
+        for (String username : usernames) {
+            if (retryAfter == 0) {
+                retryAfter = loginRateLimiter.tryAcquire(route, LoginRateLimiter.KEY_IP,
+                        request.getRemoteAddr(), limit.getPerIp(), limit.getPeriod());
+            }
+            if (retryAfter == 0) {
+                retryAfter = loginRateLimiter.tryAcquire(route, LoginRateLimiter.KEY_USERNAME,
+                        username, limit.getPerUsername(), limit.getPeriod());
+            }
+        }
+        
+        if (retryAfter > 0) {
+            log.warn("Rate limited authentication attempt on {} from {}", route, request.getRemoteAddr());
+            writeTooManyRequests(response, retryAfter, graphQl);
+            return;
+        }
+        
+        filterChain.doFilter(cachedRequest, response);
+    }
+    
+    /**
+     * The request path as Spring MVC routes it: decoded, without path parameters and
+     * the context path, so encoded variants of a route are throttled like the route.
+     */
+    private String routeOf(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+    }
+    
+    /**
+     * Extract the username from a JSON request body.
+     */
+    private String jsonUsername(byte[] body) {
+        try {
+            Object username = objectMapper.readValue(body, Map.class).get("username");
+            return username != null ? username.toString() : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Extract the usernames of the authentication mutations in a GraphQL request. The parsed
+     * document is left on the request for execution to reuse.
+     *
+     * @return one username per authentication mutation field, null where it can not be
+     * determined, or null if the request has no authentication mutation
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> graphQlAuthUsernames(CachedBodyRequest request) {
+        Map<String, Object> payload;
+        try {
+            payload = objectMapper.readValue(request.getBody(), Map.class);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        
+        Object query = payload.get("query");
+        if (!(query instanceof String queryText) || !queryText.contains("mutation")
+                || AUTH_MUTATIONS.keySet().stream().noneMatch(queryText::contains)) {
+            return null;
+        }
+        
+        Map<String, Object> variables = payload.get("variables") instanceof Map<?, ?> map
+                ? (Map<String, Object>) map : Map.of();
+        
+        Document document;
+        try {
+            document = Parser.parse(queryText);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        
+        request.setAttribute(ReusedDocumentProvider.ATTRIBUTE, new ReusedDocumentProvider.ParsedQuery(queryText, document));
+        
+        Map<String, FragmentDefinition> fragments = new HashMap<>();
+        for (FragmentDefinition fragment : document.getDefinitionsOfType(FragmentDefinition.class)) {
+            fragments.put(fragment.getName(), fragment);
+        }
+        
+        List<Field> authFields = new ArrayList<>();
+        for (OperationDefinition operation : document.getDefinitionsOfType(OperationDefinition.class)) {
+            if (operation.getOperation() == OperationDefinition.Operation.MUTATION) {
+                collectAuthFields(operation.getSelectionSet(), fragments, new HashSet<>(), authFields);
+            }
+        }
+        if (authFields.isEmpty()) {
+            return null;
+        }
+        
+        List<String> usernames = new ArrayList<>(authFields.size());
+        for (Field field : authFields) {
+            String argumentName = AUTH_MUTATIONS.get(field.getName());
+            Argument argument = field.getArguments().stream()
+                    .filter(arg -> arg.getName().equals(argumentName))
+                    .findFirst()
+                    .orElse(null);
+            usernames.add(argument != null ? username(argument.getValue(), variables) : null);
+        }
+        return usernames;
+    }
+    
+    /**
+     * Collect the authentication fields of a mutation's root selection set, looking through
+     * inline fragments and fragment spreads.
+     */
+    private void collectAuthFields(SelectionSet selectionSet, Map<String, FragmentDefinition> fragments,
+                                   Set<String> visitedFragments, List<Field> authFields) {
+        if (selectionSet == null) {
+            return;
+        }
+        for (Selection<?> selection : selectionSet.getSelections()) {
+            if (selection instanceof Field field) {
+                if (AUTH_MUTATIONS.containsKey(field.getName())) {
+                    authFields.add(field);
+                }
+            } else if (selection instanceof InlineFragment inlineFragment) {
+                collectAuthFields(inlineFragment.getSelectionSet(), fragments, visitedFragments, authFields);
+            } else if (selection instanceof FragmentSpread spread && visitedFragments.add(spread.getName())) {
+                FragmentDefinition fragment = fragments.get(spread.getName());
+                if (fragment != null) {
+                    collectAuthFields(fragment.getSelectionSet(), fragments, visitedFragments, authFields);
+                }
+            }
+        }
+    }
+    
+    private String username(Value<?> value, Map<String, Object> variables) {
+        if (value instanceof VariableReference reference) {
+            Object input = variables.get(reference.getName());
+            return input instanceof Map<?, ?> map && map.get("username") != null ? map.get("username").toString() : null;
+        }
+        if (value instanceof ObjectValue objectValue) {
+            for (ObjectField objectField : objectValue.getObjectFields()) {
+                if ("username".equals(objectField.getName())) {
+                    if (objectField.getValue() instanceof StringValue stringValue) {
+                        return stringValue.getValue();
+                    }
+                    if (objectField.getValue() instanceof VariableReference reference && variables.get(reference.getName()) != null) {
+                        return variables.get(reference.getName()).toString();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    
+    private void writeTooManyRequests(HttpServletResponse response, long retryAfterSeconds, boolean graphQl) throws IOException {
+        String message = "Too many authentication attempts, please retry later";
+        Object body = graphQl
+                ? Map.of("errors", List.of(Map.of("message", message,
+                        "extensions", Map.of("classification", "TOO_MANY_REQUESTS"))))
+                : Map.of("message", message);
+        
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+    
+    /**
+     * Request wrapper that reads the body once so it can be inspected and then replayed.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        
+        private final byte[] body;
+        
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+        
+        byte[] getBody() {
+            return body;
+        }
+        
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+                
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+                
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+                
+                @Override
+                public int read() {
+                    return input.read();
+                }
+                
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+        
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
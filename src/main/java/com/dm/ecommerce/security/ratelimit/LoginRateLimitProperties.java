@@ -0,0 +1,35 @@
+package com.dm.ecommerce.security.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Login rate limit settings, configured per route under {@code login-rate-limit.routes}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "login-rate-limit")
+public class LoginRateLimitProperties {
+    
+    private boolean enabled = true;
+    
+    // Upper bound on tracked client IPs and usernames; idle entries also expire
+    private long maxTrackedKeys = 100_000;
+    
+    // Request path -> limits
+    private Map<String, Limit> routes = new HashMap<>();
+    
+    @Data
+    public static class Limit {
+        // Attempts allowed per client IP per period, 0 for no limit
+        private int perIp = 20;
+        // Attempts allowed per username per period, 0 for no limit
+        private int perUsername = 5;
+        private Duration period = Duration.ofMinutes(1);
+    }
+}
@@ -0,0 +1,82 @@
+package com.dm.ecommerce.security.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Token-bucket rate limiter for authentication attempts, keyed by route and client IP or username.
+ * Buckets live in a bounded cache and expire once idle for longer than it takes them to refill,
+ * so memory stays bounded under credential-stuffing traffic with many distinct keys.
+ */
+@Service
+public class LoginRateLimiter {
+    
+    public static final String KEY_IP = "ip";
+    public static final String KEY_USERNAME = "username";
+    
+    @Autowired
+    private LoginRateLimitProperties properties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Cache<String, TokenBucket> buckets;
+    
+    @PostConstruct
+    public void init() {
+        Duration longestPeriod = properties.getRoutes().values().stream()
+                .map(LoginRateLimitProperties.Limit::getPeriod)
+                .max(Duration::compareTo)
+                .orElse(Duration.ofMinutes(1));
+        
+        buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedKeys())
+                .expireAfterAccess(longestPeriod)
+                .build();
+        
+        Gauge.builder("login.rate-limit.tracked", buckets, Cache::estimatedSize)
+                .description("Client IPs and usernames with an active login rate limit bucket")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Try to take one attempt from the bucket for a key.
+     *
+     * @param route    the request path the limit applies to
+     * @param keyType  {@link #KEY_IP} or {@link #KEY_USERNAME}
+     * @param key      the client IP or username
+     * @param capacity the attempts allowed per period, 0 for no limit
+     * @param period   the refill period
+     * @return 0 if the attempt is allowed, otherwise the seconds until the next attempt is allowed
+     */
+    public long tryAcquire(String route, String keyType, String key, int capacity, Duration period) {
+        if (capacity <= 0 || key == null || key.isBlank()) {
+            return 0;
+        }
+        
+        long now = System.nanoTime();
+        String bucketKey = route + '|' + keyType + '|' + key.toLowerCase(Locale.ROOT);
+        TokenBucket bucket = buckets.get(bucketKey, k -> new TokenBucket(capacity, period.toNanos(), now));
+        
+        if (bucket.tryConsume(now)) {
+            return 0;
+        }
+        
+        Counter.builder("login.rate-limit.rejected")
+                .description("Authentication attempts rejected by the login rate limiter")
+                .tag("route", route)
+                .tag("key", keyType)
+                .register(meterRegistry)
+                .increment();
+        return Math.max(1, Duration.ofNanos(bucket.nanosUntilNextToken(now)).toSeconds());
+    }
+}
@@ -0,0 +1,55 @@
+package com.dm.ecommerce.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket.
+ * Implemented as a generic cell rate algorithm: the bucket state is a single
+ * "theoretical arrival time" updated with compare-and-set, so concurrent requests
+ * never block each other.
+ */
+class TokenBucket {
+    
+    // Time to regenerate one token
+    private final long emissionIntervalNanos;
+    
+    // Time to regenerate a full bucket
+    private final long capacityNanos;
+    
+    private final AtomicLong theoreticalArrival;
+    
+    TokenBucket(int capacity, long periodNanos, long nowNanos) {
+        this.emissionIntervalNanos = Math.max(1, periodNanos / capacity);
+        this.capacityNanos = emissionIntervalNanos * capacity;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+    
+    /**
+     * Try to take one token.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return true if a token was available
+     */
+    boolean tryConsume(long nowNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = (arrival - nowNanos > 0 ? arrival : nowNanos) + emissionIntervalNanos;
+            if (next - nowNanos > capacityNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Get the time until the next token becomes available.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return the wait in nanoseconds, 0 if a token is available now
+     */
+    long nanosUntilNextToken(long nowNanos) {
+        return Math.max(0, theoreticalArrival.get() + emissionIntervalNanos - capacityNanos - nowNanos);
+    }
+}
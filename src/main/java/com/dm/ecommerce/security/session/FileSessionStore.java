@@ -0,0 +1,203 @@
+package com.dm.ecommerce.security.session;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * File-backed session store: one small file per session, with the file's modification
+ * time as the last access time. Session data stays off-heap (the OS page cache keeps hot
+ * sessions in memory), and nodes pointed at a shared directory share sessions.
+ * Files are spread over 2-character shard directories to keep directories small, and an
+ * empty file per session under {@code users/<user ID>} indexes sessions by user.
+ */
+public class FileSessionStore implements SessionStore {
+    
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private static final String USERS_DIRECTORY = "users";
+    
+    private final Path directory;
+    private final Path usersDirectory;
+    private final Duration maxIdleTime;
+    
+    // Access times are only rewritten once they are this stale, so reads rarely write
+    private final Duration touchInterval;
+    
+    public FileSessionStore(Path directory, Duration maxIdleTime) {
+        this.directory = directory.toAbsolutePath();
+        this.usersDirectory = this.directory.resolve(USERS_DIRECTORY);
+        this.maxIdleTime = maxIdleTime;
+        this.touchInterval = maxIdleTime.dividedBy(30);
+    }
+    
+    @Override
+    public Optional<byte[]> load(String sessionId) {
+        Path file = resolve(sessionId);
+        try {
+            Instant now = Instant.now();
+            Instant lastAccessed = Files.getLastModifiedTime(file).toInstant();
+            if (isExpired(lastAccessed, now)) {
+                Files.deleteIfExists(file);
+                return Optional.empty();
+            }
+            
+            byte[] data = Files.readAllBytes(file);
+            if (lastAccessed.plus(touchInterval).isBefore(now)) {
+                Files.setLastModifiedTime(file, FileTime.from(now));
+            }
+            return Optional.of(data);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read session from " + file, e);
+        }
+    }
+    
+    @Override
+    public void save(String sessionId, Long userId, byte[] data) {
+        Path file = resolve(sessionId);
+        try {
+            // Indexed first, so a session that exists can always be found by its user
+            index(sessionId, userId);
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), sessionId, TEMP_SUFFIX);
+            Files.write(tempFile, data);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write session to " + file, e);
+        }
+    }
+    
+    @Override
+    public void delete(String sessionId) {
+        Path file = resolve(sessionId);
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete session " + file, e);
+        }
+    }
+    
+    @Override
+    public int deleteByUserId(Long userId) {
+        Path userDirectory = usersDirectory.resolve(userId.toString());
+        if (!Files.isDirectory(userDirectory)) {
+            return 0;
+        }
+        
+        int deleted = 0;
+        try (DirectoryStream<Path> markers = Files.newDirectoryStream(userDirectory)) {
+            for (Path marker : markers) {
+                if (Files.deleteIfExists(resolve(marker.getFileName().toString()))) {
+                    deleted++;
+                }
+                Files.deleteIfExists(marker);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete sessions of user " + userId, e);
+        }
+        return deleted;
+    }
+    
+    /**
+     * Delete idle sessions, then the index entries of sessions that no longer exist.
+     */
+    @Override
+    public int evictExpired() {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        
+        Instant now = Instant.now();
+        int evicted = 0;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory,
+                path -> Files.isDirectory(path) && !path.equals(usersDirectory))) {
+            for (Path shard : shards) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        if (evictIfExpired(file, now)) {
+                            evicted++;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan sessions in " + directory, e);
+        }
+        pruneIndex();
+        return evicted;
+    }
+    
+    private void index(String sessionId, Long userId) throws IOException {
+        Path marker = usersDirectory.resolve(userId.toString()).resolve(sessionId);
+        // Pruning may remove the user's directory once it is empty, between the two calls
+        while (true) {
+            try {
+                Files.createDirectories(marker.getParent());
+                Files.createFile(marker);
+                return;
+            } catch (FileAlreadyExistsException e) {
+                return;
+            } catch (NoSuchFileException e) {
+                // Directory removed under us; create it again
+            }
+        }
+    }
+    
+    private void pruneIndex() {
+        if (!Files.isDirectory(usersDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> users = Files.newDirectoryStream(usersDirectory)) {
+            for (Path user : users) {
+                try (DirectoryStream<Path> markers = Files.newDirectoryStream(user)) {
+                    for (Path marker : markers) {
+                        if (!Files.exists(resolve(marker.getFileName().toString()))) {
+                            Files.deleteIfExists(marker);
+                        }
+                    }
+                }
+                try {
+                    Files.deleteIfExists(user);
+                } catch (DirectoryNotEmptyException e) {
+                    // The user still has sessions
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prune the session index in " + usersDirectory, e);
+        }
+    }
+    
+    private boolean evictIfExpired(Path file, Instant now) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            // Temp files left behind by a crashed write expire the same way
+            if (!isExpired(attributes.lastModifiedTime().toInstant(), now)) {
+                return false;
+            }
+            return Files.deleteIfExists(file) && !file.getFileName().toString().endsWith(TEMP_SUFFIX);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+    
+    private boolean isExpired(Instant lastAccessed, Instant now) {
+        return lastAccessed.plus(maxIdleTime).isBefore(now);
+    }
+    
+    private Path resolve(String sessionId) {
+        return directory.resolve(sessionId.substring(0, 2)).resolve(sessionId);
+    }
+}
@@ -0,0 +1,81 @@
+package com.dm.ecommerce.security.session;
+
+import com.dm.ecommerce.security.UserPrincipal;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compact binary encoding of an authenticated user for the session store.
+ * Only the user ID, username and authorities are written, never credentials; a typical
+ * session is well under 100 bytes, against several KB for Java serialization.
+ * Layout: format version (byte), user ID (long), username (UTF), authority count (short),
+ * authorities (UTF each).
+ */
+public final class SecurityContextCodec {
+    
+    private static final byte FORMAT_VERSION = 1;
+    
+    private SecurityContextCodec() {
+    }
+    
+    /**
+     * Encode an authenticated principal.
+     *
+     * @param principal the principal
+     * @return the encoded bytes
+     */
+    public static byte[] encode(UserPrincipal principal) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            output.writeLong(principal.getId());
+            output.writeUTF(principal.getUsername());
+            output.writeShort(principal.getAuthorities().size());
+            for (GrantedAuthority authority : principal.getAuthorities()) {
+                output.writeUTF(authority.getAuthority());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Decode an authentication written by {@link #encode(UserPrincipal)}.
+     *
+     * @param data the encoded bytes
+     * @return an optional containing the authentication, or empty if the data is in an unknown format
+     */
+    public static Optional<Authentication> decode(byte[] data) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (input.readByte() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            
+            long id = input.readLong();
+            String username = input.readUTF();
+            int count = input.readShort();
+            List<GrantedAuthority> authorities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                authorities.add(new SimpleGrantedAuthority(input.readUTF()));
+            }
+            
+            UserPrincipal principal = new UserPrincipal(id, username, null, authorities);
+            return Optional.of(UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.dm.ecommerce.security.session;
+
+import com.dm.ecommerce.security.UserPrincipal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.servlet.server.Session;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Security context repository backed by a {@link SessionStore} instead of the servlet
+ * container's HTTP sessions. The session ID travels in a cookie configured by
+ * {@code server.servlet.session.cookie.*}, and the store evicts sessions idle for longer
+ * than {@code server.servlet.session.timeout}.
+ */
+@Component
+public class SessionSecurityContextRepository implements SecurityContextRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SessionSecurityContextRepository.class);
+    
+    private static final String DEFAULT_COOKIE_NAME = "SESSION";
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{43}");
+    private static final String LOADED_CONTEXT_ATTRIBUTE = SessionSecurityContextRepository.class.getName() + ".CONTEXT";
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    @Autowired
+    private SessionStore sessionStore;
+    
+    @Autowired
+    private ServerProperties serverProperties;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private Counter evictedCounter;
+    
+    @PostConstruct
+    public void init() {
+        evictedCounter = Counter.builder("sessions.evicted")
+                .description("Sessions evicted from the session store after the idle timeout")
+                .register(meterRegistry);
+    }
+    
+    @Override
+    @SuppressWarnings("deprecation")
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        return loadDeferredContext(requestResponseHolder.getRequest()).get();
+    }
+    
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        return new DeferredSecurityContext() {
+            @Override
+            public SecurityContext get() {
+                return loadStoredContext(request).orElseGet(SecurityContextHolder::createEmptyContext);
+            }
+            
+            @Override
+            public boolean isGenerated() {
+                return loadStoredContext(request).isEmpty();
+            }
+        };
+    }
+    
+    /**
+     * Store an authenticated context under a new session ID, replacing any session the
+     * request already had; an unauthenticated context ends the session instead.
+     *
+     * @param context  the security context
+     * @param request  the HTTP request
+     * @param response the HTTP response
+     */
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = context.getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            removeContext(request, response);
+            return;
+        }
+        
+        // A fresh ID on every login prevents session fixation
+        getSessionId(request).ifPresent(sessionStore::delete);
+        String sessionId = generateSessionId();
+        sessionStore.save(sessionId, principal.getId(), SecurityContextCodec.encode(principal));
+        request.setAttribute(LOADED_CONTEXT_ATTRIBUTE, Optional.of(context));
+        response.addCookie(createCookie(request, sessionId, -1));
+    }
+    
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return loadStoredContext(request).isPresent();
+    }
+    
+    /**
+     * End the request's session, if any, and expire its cookie.
+     *
+     * @param request  the HTTP request
+     * @param response the HTTP response
+     */
+    public void removeContext(HttpServletRequest request, HttpServletResponse response) {
+        Optional<String> sessionId = getSessionId(request);
+        if (sessionId.isPresent()) {
+            sessionStore.delete(sessionId.get());
+            response.addCookie(createCookie(request, "", 0));
+        }
+        request.setAttribute(LOADED_CONTEXT_ATTRIBUTE, Optional.empty());
+    }
+    
+    /**
+     * Evict sessions that have been idle for longer than the session timeout.
+     */
+    @Scheduled(fixedDelayString = "${session-store.eviction-interval:60000}")
+    public void evictExpiredSessions() {
+        int evicted = sessionStore.evictExpired();
+        if (evicted > 0) {
+            evictedCounter.increment(evicted);
+            logger.info("Evicted {} idle sessions", evicted);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private Optional<SecurityContext> loadStoredContext(HttpServletRequest request) {
+        Object loaded = request.getAttribute(LOADED_CONTEXT_ATTRIBUTE);
+        if (loaded != null) {
+            return (Optional<SecurityContext>) loaded;
+        }
+        
+        Optional<SecurityContext> context = getSessionId(request)
+                .flatMap(sessionStore::load)
+                .flatMap(SecurityContextCodec::decode)
+                .map(authentication -> {
+                    SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+                    securityContext.setAuthentication(authentication);
+                    return securityContext;
+                });
+        request.setAttribute(LOADED_CONTEXT_ATTRIBUTE, context);
+        return context;
+    }
+    
+    private Optional<String> getSessionId(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return Optional.empty();
+        }
+        
+        String cookieName = getCookieName();
+        for (Cookie cookie : cookies) {
+            // Only well-formed IDs reach the store, so a cookie can never name an arbitrary file
+            if (cookieName.equals(cookie.getName()) && SESSION_ID.matcher(cookie.getValue()).matches()) {
+                return Optional.of(cookie.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+    
+    private String generateSessionId() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+    
+    private Cookie createCookie(HttpServletRequest request, String value, int maxAge) {
+        Session.Cookie settings = serverProperties.getServlet().getSession().getCookie();
+        
+        Cookie cookie = new Cookie(getCookieName(), value);
+        cookie.setPath(settings.getPath() != null ? settings.getPath() : request.getContextPath() + "/");
+        cookie.setHttpOnly(settings.getHttpOnly() == null || settings.getHttpOnly());
+        cookie.setSecure(settings.getSecure() != null ? settings.getSecure() : request.isSecure());
+        cookie.setAttribute("SameSite", settings.getSameSite() != null ? settings.getSameSite().attributeValue() : "Lax");
+        if (settings.getDomain() != null) {
+            cookie.setDomain(settings.getDomain());
+        }
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+    
+    private String getCookieName() {
+        String name = serverProperties.getServlet().getSession().getCookie().getName();
+        return name != null ? name : DEFAULT_COOKIE_NAME;
+    }
+}
@@ -0,0 +1,52 @@
+package com.dm.ecommerce.security.session;
+
+import java.util.Optional;
+
+/**
+ * Storage for serialized login sessions, kept outside the servlet container so any
+ * node can serve any session and session count does not grow the heap.
+ * Implementations own the idle policy: sessions not accessed within it are gone.
+ * Sessions are indexed by user, so a user's sessions can be ended when the user's
+ * details change, since each session holds the details as they were at login.
+ */
+public interface SessionStore {
+    
+    /**
+     * Load a session and record the access.
+     *
+     * @param sessionId the session ID
+     * @return an optional containing the session data, or empty if unknown or idle too long
+     */
+    Optional<byte[]> load(String sessionId);
+    
+    /**
+     * Create or replace a session.
+     *
+     * @param sessionId the session ID
+     * @param userId    the ID of the user the session belongs to
+     * @param data      the session data
+     */
+    void save(String sessionId, Long userId, byte[] data);
+    
+    /**
+     * Delete a session.
+     *
+     * @param sessionId the session ID
+     */
+    void delete(String sessionId);
+    
+    /**
+     * Delete every session of a user, e.g. after the user changed or was deleted.
+     *
+     * @param userId the user ID
+     * @return the number of sessions deleted
+     */
+    int deleteByUserId(Long userId);
+    
+    /**
+     * Delete every session idle for longer than the idle timeout.
+     *
+     * @return the number of sessions deleted
+     */
+    int evictExpired();
+}
@@ -1,15 +1,51 @@
 package com.dm.ecommerce.service;
 
 import com.dm.ecommerce.config.AuthMode;
+import com.dm.ecommerce.config.AuthModeState;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Service responsible for managing the authentication mode.
+ * The mode is a versioned value published atomically to every request thread; switches
+ * go through the shared {@link AuthModeStore}, which is polled so every node follows the
+ * latest version.
  */
 @Service
+@RequiredArgsConstructor
+@Slf4j
 public class AuthModeService {
     
-    private AuthMode currentMode = AuthMode.STATELESS; // Default to JWT-based auth
+    private final AuthModeStore authModeStore;
+    
+    // Default to JWT-based auth until a stored mode is loaded
+    private final AtomicReference<AuthModeState> currentState =
+            new AtomicReference<>(new AuthModeState(AuthMode.STATELESS, 0));
+    
+    /**
+     * Load the stored mode at startup.
+     */
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+    
+    /**
+     * Pick up mode switches made by other nodes.
+     */
+    @Scheduled(fixedDelayString = "${auth-mode.refresh-interval:5000}")
+    public void refresh() {
+        try {
+            authModeStore.load().ifPresent(this::apply);
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh auth mode from store: {}", e.getMessage());
+        }
+    }
     
     /**
      * Get the current authentication mode.
@@ -17,7 +53,16 @@ public class AuthModeService {
      * @return the current authentication mode
      */
     public AuthMode getCurrentMode() {
-        return currentMode;
+        return currentState.get().mode();
+    }
+    
+    /**
+     * Get the current authentication mode with its version.
+     *
+     * @return the current authentication mode state
+     */
+    public AuthModeState getCurrentState() {
+        return currentState.get();
     }
     
     /**
@@ -27,8 +72,7 @@ public class AuthModeService {
      * @return the updated authentication mode
      */
     public AuthMode switchMode(AuthMode mode) {
-        this.currentMode = mode;
-        return this.currentMode;
+        return apply(authModeStore.update(mode)).mode();
     }
     
     /**
@@ -37,7 +81,7 @@ public class AuthModeService {
      * @return true if the current mode is stateless, false otherwise
      */
     public boolean isStateless() {
-        return currentMode == AuthMode.STATELESS;
+        return getCurrentMode() == AuthMode.STATELESS;
     }
     
     /**
@@ -46,6 +90,19 @@ public class AuthModeService {
      * @return true if the current mode is stateful, false otherwise
      */
     public boolean isStateful() {
-        return currentMode == AuthMode.STATEFUL;
+        return getCurrentMode() == AuthMode.STATEFUL;
+    }
+    
+    /**
+     * Publish a state if it is newer than the current one.
+     */
+    private AuthModeState apply(AuthModeState state) {
+        AuthModeState previous = currentState.getAndAccumulate(state,
+                (current, candidate) -> candidate.version() > current.version() ? candidate : current);
+        if (state.version() > previous.version()) {
+            log.info("Auth mode is now {} (version {})", state.mode(), state.version());
+            return state;
+        }
+        return previous;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.config.AuthMode;
+import com.dm.ecommerce.config.AuthModeState;
+
+import java.util.Optional;
+
+/**
+ * Shared storage for the authentication mode.
+ * Nodes pointing at the same store converge on the same mode; replace the default
+ * file-backed store with another bean of this type to share it differently.
+ */
+public interface AuthModeStore {
+    
+    /**
+     * Load the stored authentication mode.
+     *
+     * @return an optional containing the stored state, or empty if no mode was ever stored
+     */
+    Optional<AuthModeState> load();
+    
+    /**
+     * Atomically store a new mode with the next version.
+     *
+     * @param mode the new authentication mode
+     * @return the stored state
+     */
+    AuthModeState update(AuthMode mode);
+}
@@ -0,0 +1,61 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.repository.CartItemRepository;
+import com.dm.ecommerce.repository.CartRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically checks the incrementally maintained cart totals and price snapshots.
+ * Totals that drifted from their items are repaired; items priced at an outdated product
+ * price are only counted, as they keep their snapshot until the cart is repriced at checkout.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CartReconciliationService {
+    
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final MeterRegistry meterRegistry;
+    
+    private final AtomicLong repricedItems = new AtomicLong();
+    private Counter driftedTotals;
+    
+    @PostConstruct
+    public void init() {
+        driftedTotals = Counter.builder("cart.reconciliation.drifted-totals")
+                .description("Cart totals found out of step with their items and repaired")
+                .register(meterRegistry);
+        Gauge.builder("cart.reconciliation.repriced-items", repricedItems, AtomicLong::get)
+                .description("Cart items whose price snapshot differs from the current product price")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Repair drifted cart totals and count items with outdated prices.
+     */
+    @Scheduled(fixedDelayString = "${cart.reconciliation-interval:300000}")
+    @Transactional
+    public void reconcile() {
+        int drifted = cartRepository.repairDriftedTotals();
+        repricedItems.set(cartItemRepository.countRepricedItems());
+        
+        if (drifted > 0) {
+            driftedTotals.increment(drifted);
+            log.warn("Repaired {} cart totals that drifted from their items", drifted);
+        }
+        if (repricedItems.get() > 0) {
+            log.info("{} cart items are priced differently from their product's current price", repricedItems.get());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.model.Cart;
+import com.dm.ecommerce.payload.CartOperation;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Service interface for shopping cart operations.
+ * Carts are addressed by user ID. Every write is two SQL statements, one adjusting the
+ * cart total by delta and one changing the item, priced at the snapshot taken when the
+ * product was added. Item changes can carry the item version the client last saw; a stale version fails
+ * with an {@link org.springframework.dao.OptimisticLockingFailureException}.
+ */
+public interface CartService {
+    
+    /**
+     * Get a user's cart with its items.
+     *
+     * @param userId the user ID
+     * @return the cart, empty and unsaved if the user has none yet
+     */
+    Cart getCart(Long userId);
+    
+    /**
+     * Add a product to a user's cart. Adding a product already in the cart increases its quantity.
+     *
+     * @param userId    the user ID
+     * @param productId the product ID
+     * @param quantity  the quantity to add
+     */
+    void addItem(Long userId, Long productId, int quantity);
+    
+    /**
+     * Set the quantity of a cart item.
+     *
+     * @param userId   the user ID
+     * @param itemId   the cart item ID
+     * @param quantity the new quantity
+     * @param version  the item version the change is based on, or null to skip the check
+     * @return true if the item was updated, false if it is not in the user's cart
+     */
+    boolean updateItemQuantity(Long userId, Long itemId, int quantity, Long version);
+    
+    /**
+     * Remove an item from a user's cart.
+     *
+     * @param userId  the user ID
+     * @param itemId  the cart item ID
+     * @param version the item version the change is based on, or null to skip the check
+     * @return true if the item was removed, false if it is not in the user's cart
+     */
+    boolean removeItem(Long userId, Long itemId, Long version);
+    
+    /**
+     * Remove every item from a user's cart.
+     *
+     * @param userId the user ID
+     */
+    void clearCart(Long userId);
+    
+    /**
+     * Apply several operations to a user's cart in order, all or nothing. Every product the
+     * batch adds is looked up at once, and the changes are written as one batch.
+     *
+     * @param userId     the user ID
+     * @param operations the operations
+     * @throws IllegalArgumentException if an operation is malformed, or names a product or
+     *                                  item that does not exist; nothing is changed
+     */
+    void applyOperations(Long userId, List<CartOperation> operations);
+    
+    /**
+     * Reprice a user's cart at the current product prices, e.g. before checkout.
+     *
+     * @param userId the user ID
+     * @return true if any item's price changed
+     */
+    boolean repriceCart(Long userId);
+    
+    /**
+     * Check out a user's cart while holding its lock, so no other change to the cart can
+     * interleave: reprice it, pass it to the action that places the order, then remove the
+     * items the order was placed for, each only if it is still at the version the order saw.
+     *
+     * @param userId     the user ID
+     * @param placeOrder places an order for the repriced cart
+     * @param <T>        the action's result type
+     * @return the action's result
+     */
+    <T> T checkout(Long userId, Function<Cart, T> placeOrder);
+    
+    /**
+     * Make sure every change to a user's cart is in the database, e.g. before checkout reads it.
+     *
+     * @param userId the user ID
+     */
+    void flushCart(Long userId);
+}
@@ -133,6 +133,7 @@ public class DataLoaderService implements CommandLineRunner {
                         productDto.getStockQuantity() : 0);
                 product.setCategory(category);
                 
+                // The search and related-product indexes are built once the application is ready
                 productRepository.save(product);
                 log.debug("Saved product: {}", product.getName());
             } else {
@@ -0,0 +1,66 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.model.Order;
+import com.dm.ecommerce.payload.OrderItemRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service interface for order operations.
+ * Orders snapshot each item's price when placed; the total is computed once from those
+ * snapshots, and the order, its items and its payment are inserted in one transaction.
+ */
+public interface OrderService {
+    
+    /**
+     * Place an order for the given items, priced at the products' current prices.
+     *
+     * @param userId            the user ID
+     * @param items             the products and quantities to order
+     * @param shippingAddressId the ID of one of the user's addresses
+     * @param paymentMethod     the payment method
+     * @return the placed order
+     * @throws IllegalArgumentException if an item is invalid, a product or the address does not exist,
+     *                                  or a product does not have enough stock
+     */
+    Order createOrder(Long userId, List<OrderItemRequest> items, Long shippingAddressId, String paymentMethod);
+    
+    /**
+     * Place an order for the contents of a user's cart, repriced at the products' current
+     * prices, then empty the cart.
+     *
+     * @param userId            the user ID
+     * @param shippingAddressId the ID of one of the user's addresses
+     * @param paymentMethod     the payment method
+     * @return the placed order
+     * @throws IllegalArgumentException if the cart is empty, the address does not exist, or a product
+     *                                  does not have enough stock
+     */
+    Order checkout(Long userId, Long shippingAddressId, String paymentMethod);
+    
+    /**
+     * Get an order with its items, shipping address and payment.
+     *
+     * @param id the order ID
+     * @return an optional containing the order, or empty if not found
+     */
+    Optional<Order> getOrderById(Long id);
+    
+    /**
+     * Get a user's orders, newest first.
+     *
+     * @param userId the user ID
+     * @return the orders
+     */
+    List<Order> getUserOrders(Long userId);
+    
+    /**
+     * Change an order's status.
+     *
+     * @param id     the order ID
+     * @param status the new status
+     * @return an optional containing the updated order, or empty if not found
+     */
+    Optional<Order> updateOrderStatus(Long id, Order.OrderStatus status);
+}
@@ -0,0 +1,175 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.payload.PasswordMigrationStatus;
+import com.dm.ecommerce.repository.UserRepository;
+import com.dm.ecommerce.security.PasswordHashVersions;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admin job that brings every password hash up to the current work factor without waiting
+ * for its user to log in. Hashes below the current work factor are wrapped in a hash at the
+ * current work factor, and unwrapped into a plain current hash on the user's next login;
+ * unversioned hashes already at full strength only get their version prefix. Chunks are
+ * processed in parallel.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordMigrationService {
+    
+    private static final String UPDATE_PASSWORD_SQL = "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+    
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Value("${password-hashing.bcrypt-strength:10}")
+    private int bcryptStrength;
+    
+    @Value("${password-hashing.migration.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${password-hashing.migration.parallelism:4}")
+    private int parallelism;
+    
+    private volatile MigrationRun currentRun;
+    
+    private static class MigrationRun {
+        private volatile String state = "RUNNING";
+        private final long total;
+        private final AtomicLong migrated = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile LocalDateTime finishedAt;
+        
+        private MigrationRun(long total) {
+            this.total = total;
+        }
+        
+        private long processed() {
+            return migrated.get() + skipped.get() + failed.get();
+        }
+    }
+    
+    /**
+     * Start the migration in the background, unless a run is already in progress.
+     *
+     * @return the status of the started or running migration
+     */
+    public synchronized PasswordMigrationStatus startMigration() {
+        if (currentRun == null || !"RUNNING".equals(currentRun.state)) {
+            MigrationRun run = new MigrationRun(countPasswordsToMigrate());
+            currentRun = run;
+            Thread.ofVirtual().name("password-migration").start(() -> migrate(run));
+        }
+        return getStatus();
+    }
+    
+    /**
+     * Get the status of the latest migration run.
+     *
+     * @return the migration status
+     */
+    public PasswordMigrationStatus getStatus() {
+        long pendingUpgrade = userRepository.countPasswordsNotAtVersion(currentVersionId());
+        MigrationRun run = currentRun;
+        if (run == null) {
+            return new PasswordMigrationStatus("IDLE", countPasswordsToMigrate(),
+                    0, 0, 0, pendingUpgrade, null, null);
+        }
+        return new PasswordMigrationStatus(run.state, run.total, run.migrated.get(), run.skipped.get(),
+                run.failed.get(), pendingUpgrade, run.startedAt, run.finishedAt);
+    }
+    
+    private String currentVersionId() {
+        return PasswordHashVersions.versionId(bcryptStrength);
+    }
+    
+    private long countPasswordsToMigrate() {
+        return userRepository.countPasswordsToMigrate(currentVersionId(), PasswordHashVersions.wrappedVersionId());
+    }
+    
+    private void migrate(MigrationRun run) {
+        log.info("Password migration started for {} hashes below version {}", run.total, currentVersionId());
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            Long afterId = 0L;
+            List<Object[]> rows;
+            
+            // Read chunks in ID order and migrate them in parallel, bounding the chunks held in memory
+            while (!(rows = userRepository.findPasswordsToMigrate(afterId, currentVersionId(),
+                    PasswordHashVersions.wrappedVersionId(), PageRequest.of(0, chunkSize))).isEmpty()) {
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+                inFlight.acquire();
+                List<Object[]> chunk = rows;
+                executor.execute(() -> {
+                    try {
+                        migrateChunk(chunk, run);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.state = "FAILED";
+        } catch (RuntimeException e) {
+            log.error("Password migration failed", e);
+            run.state = "FAILED";
+        }
+        
+        if ("RUNNING".equals(run.state)) {
+            run.state = "COMPLETED";
+        }
+        run.finishedAt = LocalDateTime.now();
+        log.info("Password migration {}: {} migrated, {} skipped, {} failed",
+                run.state.toLowerCase(), run.migrated.get(), run.skipped.get(), run.failed.get());
+    }
+    
+    private void migrateChunk(List<Object[]> rows, MigrationRun run) {
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            String hash = (String) row[1];
+            String migrated = PasswordHashVersions.wrapWeakHash(hash, bcryptStrength);
+            if (migrated == null) {
+                migrated = PasswordHashVersions.versionLegacyHash(hash);
+            }
+            if (migrated != null) {
+                updates.add(new Object[] {migrated, row[0], hash});
+            } else {
+                run.skipped.incrementAndGet();
+            }
+        }
+        
+        try {
+            // The old hash is part of the condition so a concurrent login upgrade is not overwritten
+            for (int count : jdbcTemplate.batchUpdate(UPDATE_PASSWORD_SQL, updates)) {
+                if (count > 0) {
+                    run.migrated.incrementAndGet();
+                } else {
+                    run.skipped.incrementAndGet();
+                }
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to migrate a chunk of {} password hashes", updates.size(), e);
+            run.failed.addAndGet(updates.size());
+        }
+        
+        log.info("Password migration progress: {}/{}", run.processed(), run.total);
+    }
+}
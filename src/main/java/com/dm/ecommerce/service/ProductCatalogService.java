@@ -0,0 +1,172 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.config.CacheConfig;
+import com.dm.ecommerce.model.Category;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.repository.CategoryRepository;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.repository.ReviewRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Read-through cache in front of the product and category repositories.
+ * Cached products are loaded with their category so they can be served outside the
+ * persistence context that loaded them. Reviews are not cached: copies carry an empty
+ * review list, and callers that need reviews load them per product
+ * ({@link #findProductWithReviewsById}) or batched (the GraphQL review loader).
+ * Callers get copies, so changing a returned product never changes what other requests see.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductCatalogService {
+    
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ReviewRepository reviewRepository;
+    private final CacheManager cacheManager;
+    
+    /**
+     * Find a product by ID, loading it into the cache on a miss.
+     *
+     * @param id the product ID
+     * @return an optional containing a copy of the product, if found
+     */
+    @Transactional(readOnly = true)
+    public Optional<Product> findProductById(Long id) {
+        Product cached = productsCache().get(id, () ->
+                productRepository.findWithCategoryById(id).orElse(null));
+        return Optional.ofNullable(cached).map(Product::copy);
+    }
+    
+    /**
+     * Find a product by ID with its reviews, for responses that include them.
+     *
+     * @param id the product ID
+     * @return an optional containing a copy of the product with its reviews, if found
+     */
+    @Transactional(readOnly = true)
+    public Optional<Product> findProductWithReviewsById(Long id) {
+        return findProductById(id).map(product -> {
+            product.setReviews(reviewRepository.findByProductId(id));
+            return product;
+        });
+    }
+    
+    /**
+     * Find several products by ID, loading only the cache misses with a single query.
+     *
+     * @param ids the product IDs
+     * @return copies of the products found, in the order of the given IDs
+     */
+    @Transactional(readOnly = true)
+    public List<Product> findProductsByIds(List<Long> ids) {
+        Cache cache = productsCache();
+        Map<Long, Product> products = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        
+        for (Long id : ids) {
+            Product cached = cache.get(id, Product.class);
+            if (cached != null) {
+                products.put(id, cached);
+            } else {
+                products.put(id, null);
+                misses.add(id);
+            }
+        }
+        
+        if (!misses.isEmpty()) {
+            for (Product product : productRepository.findWithCategoryByIdIn(misses)) {
+                cache.put(product.getId(), product);
+                products.put(product.getId(), product);
+            }
+        }
+        
+        return products.values().stream()
+                .filter(Objects::nonNull)
+                .map(Product::copy)
+                .toList();
+    }
+    
+    /**
+     * Find a category by ID, loading it into the cache on a miss.
+     *
+     * @param id the category ID
+     * @return an optional containing a copy of the category, if found
+     */
+    public Optional<Category> findCategoryById(Long id) {
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.CATEGORIES_CACHE));
+        Category cached = cache.get(id, () -> categoryRepository.findById(id).orElse(null));
+        return Optional.ofNullable(cached).map(Category::copy);
+    }
+    
+    /**
+     * Drop a product from the cache once the current transaction commits, or right away
+     * outside a transaction, so a read racing the commit cannot cache the old state again.
+     *
+     * @param id the product ID
+     */
+    public void evictProductAfterCommit(Long id) {
+        afterCommit(() -> productsCache().evict(id));
+    }
+    
+    /**
+     * Take ordered quantities out of the cached products' stock once the current transaction
+     * commits, or right away outside a transaction. Products that are not cached are left for
+     * the next read to load. Unlike evicting, this keeps products that every order needs cached.
+     *
+     * @param quantities product ID -> quantity taken out of stock
+     */
+    @SuppressWarnings("unchecked")
+    public void takeStockAfterCommit(Map<Long, Integer> quantities) {
+        afterCommit(() -> {
+            Map<Object, Object> cached = ((com.github.benmanes.caffeine.cache.Cache<Object, Object>)
+                    productsCache().getNativeCache()).asMap();
+            quantities.forEach((id, quantity) -> cached.computeIfPresent(id, (key, value) -> {
+                if (!(value instanceof Product product)) {
+                    return value;
+                }
+                Product updated = product.copy();
+                updated.setStockQuantity(product.getStockQuantity() - quantity);
+                return updated;
+            }));
+        });
+    }
+    
+    /**
+     * Drop every product from the cache once the current transaction commits, or right away
+     * outside a transaction, e.g. after a bulk update that does not know which products it changed.
+     */
+    public void evictAllProductsAfterCommit() {
+        afterCommit(() -> productsCache().clear());
+    }
+    
+    private void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+    
+    private Cache productsCache() {
+        return Objects.requireNonNull(cacheManager.getCache(CacheConfig.PRODUCTS_CACHE));
+    }
+}
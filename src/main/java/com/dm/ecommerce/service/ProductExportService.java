@@ -0,0 +1,108 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.dto.ProductExportRow;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Service for exporting the product catalog.
+ * Rows are streamed from a database cursor and written straight to the output,
+ * so memory use stays constant regardless of catalog size.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+    
+    private static final int FLUSH_INTERVAL = 1000;
+    
+    private static final String CSV_HEADER =
+            "id,name,description,price,stockQuantity,categoryId,reviewCount,averageRating";
+    
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Write every product as newline-delimited JSON.
+     *
+     * @param outputStream the output to write to; it is flushed but not closed
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public void exportNdjson(OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        
+        try (Stream<ProductExportRow> rows = productRepository.streamExportRows()) {
+            Iterator<ProductExportRow> iterator = rows.iterator();
+            long count = 0;
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+                if (++count % FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        generator.close();
+    }
+    
+    /**
+     * Write every product as CSV with a header row.
+     *
+     * @param outputStream the output to write to; it is flushed but not closed
+     * @throws IOException if writing fails
+     */
+    @Transactional(readOnly = true)
+    public void exportCsv(OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        
+        try (Stream<ProductExportRow> rows = productRepository.streamExportRows()) {
+            rows.forEach(row -> {
+                try {
+                    writer.write(row.getId() + ","
+                            + csv(row.getName()) + ","
+                            + csv(row.getDescription()) + ","
+                            + row.getPrice().toPlainString() + ","
+                            + row.getStockQuantity() + ","
+                            + (row.getCategoryId() != null ? row.getCategoryId() : "") + ","
+                            + row.getReviewCount() + ","
+                            + row.getAverageRating());
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+    
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
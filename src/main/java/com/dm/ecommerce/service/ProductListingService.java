@@ -0,0 +1,229 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.repository.ProductSpecifications;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Service for filtered, sorted product listings.
+ * Supports offset paging as well as keyset (cursor) paging on (sortKey, id),
+ * where every page costs the same regardless of how deep it is.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductListingService {
+    
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final int MAX_PAGE_SIZE = 100;
+    // Most products returned by listings that are not paged
+    public static final int MAX_UNPAGED_SIZE = 1000;
+    
+    private final ProductRepository productRepository;
+    
+    /**
+     * Sort key of a listing: the product property and its direction.
+     * Ties are broken by ID in the same direction, so the ordering matches both the
+     * (property, id) indexes and the row-value keyset predicate.
+     */
+    private record SortKey(String property, Sort.Direction direction) {
+        
+        Sort toSort() {
+            return "id".equals(property)
+                    ? Sort.by(direction, "id")
+                    : Sort.by(direction, property, "id");
+        }
+    }
+    
+    /**
+     * One keyset page of products.
+     *
+     * @param products the products on this page
+     * @param cursors  the cursor of each product, for resuming after it
+     * @param hasNext  whether more products follow this page
+     */
+    public record ProductSlice(List<Product> products, List<String> cursors, boolean hasNext) {
+        
+        public String endCursor() {
+            return cursors.isEmpty() ? null : cursors.get(cursors.size() - 1);
+        }
+    }
+    
+    /**
+     * Run a filtered product query with offset paging.
+     *
+     * @param filter filter criteria (ProductFilterInput)
+     * @param sort   sort options (ProductSortInput)
+     * @param page   page number (0-based)
+     * @param size   page size
+     * @return the requested page with its total count
+     */
+    public Page<Product> findFilteredProducts(Map<String, Object> filter, Map<String, String> sort, int page, int size) {
+        SortKey sortKey = sortKey(sort);
+        return productRepository.findAll(toSpecification(filter), PageRequest.of(page, size, sortKey.toSort()));
+    }
+    
+    /**
+     * Run a filtered product query with keyset paging.
+     *
+     * @param filter filter criteria (ProductFilterInput)
+     * @param sort   sort options (ProductSortInput)
+     * @param after  the cursor to resume after, or null for the first page
+     * @param limit  maximum number of products to return
+     * @return the products following the cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public ProductSlice findProductsAfter(Map<String, Object> filter, Map<String, String> sort, String after, int limit) {
+        SortKey sortKey = sortKey(sort);
+        Specification<Product> spec = toSpecification(filter);
+        
+        if (after != null && !after.isEmpty()) {
+            spec = spec.and(afterCursor(sortKey, after));
+        }
+        
+        // Fetch one extra row to learn whether there is a next page, without a count query
+        List<Product> products = productRepository.findBy(spec, query -> query
+                .sortBy(sortKey.toSort())
+                .limit(limit + 1)
+                .all());
+        
+        boolean hasNext = products.size() > limit;
+        if (hasNext) {
+            products = products.subList(0, limit);
+        }
+        
+        List<String> cursors = products.stream()
+                .map(product -> encodeCursor(sortKey, product))
+                .collect(Collectors.toList());
+        
+        return new ProductSlice(products, cursors, hasNext);
+    }
+    
+    /**
+     * Parse a list of IDs, dropping any that are not numeric.
+     *
+     * @param ids the IDs, as strings or numbers
+     * @return the numeric IDs
+     */
+    public static List<Long> parseIds(Collection<?> ids) {
+        return ids.stream()
+                .map(id -> {
+                    try {
+                        return Long.parseLong(String.valueOf(id));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    private Specification<Product> toSpecification(Map<String, Object> filter) {
+        Specification<Product> spec = Specification.where(null);
+        
+        if (filter == null) {
+            return spec;
+        }
+        
+        // Price range filter
+        if (filter.get("minPrice") instanceof Number minPrice) {
+            spec = spec.and(ProductSpecifications.minPrice(BigDecimal.valueOf(minPrice.doubleValue())));
+        }
+        
+        if (filter.get("maxPrice") instanceof Number maxPrice) {
+            spec = spec.and(ProductSpecifications.maxPrice(BigDecimal.valueOf(maxPrice.doubleValue())));
+        }
+        
+        // Category filter
+        if (filter.get("categoryIds") instanceof List<?> categoryIds) {
+            spec = spec.and(ProductSpecifications.inCategories(parseIds(categoryIds)));
+        }
+        
+        // Stock filter
+        if (filter.get("inStock") instanceof Boolean inStock) {
+            spec = spec.and(ProductSpecifications.inStock(inStock));
+        }
+        
+        // Rating filter
+        if (filter.get("minRating") instanceof Number minRating) {
+            spec = spec.and(ProductSpecifications.minRating(minRating.intValue()));
+        }
+        
+        return spec;
+    }
+    
+    private SortKey sortKey(Map<String, String> sort) {
+        // Default to sorting by ID so that pages are stable
+        if (sort == null || !sort.containsKey("field") || !sort.containsKey("direction")) {
+            return new SortKey("id", Sort.Direction.ASC);
+        }
+        
+        Sort.Direction direction = "ASC".equalsIgnoreCase(sort.get("direction"))
+                ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+        
+        return switch (sort.get("field").toLowerCase()) {
+            case "price" -> new SortKey("price", direction);
+            case "name" -> new SortKey("name", direction);
+            case "rating" -> new SortKey("averageRating", direction);
+            default -> new SortKey("id", direction);
+        };
+    }
+    
+    private Specification<Product> afterCursor(SortKey sortKey, String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        
+        // Cursor format: "<id>:<sort key value>"
+        int separator = decoded.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        
+        try {
+            Long id = Long.parseLong(decoded.substring(0, separator));
+            String value = decoded.substring(separator + 1);
+            
+            return switch (sortKey.property()) {
+                case "price" -> ProductSpecifications.after(
+                        "price", sortKey.direction(), new BigDecimal(value), id);
+                case "name" -> ProductSpecifications.after(
+                        "name", sortKey.direction(), value, id);
+                case "averageRating" -> ProductSpecifications.after(
+                        "averageRating", sortKey.direction(), Double.valueOf(value), id);
+                default -> ProductSpecifications.afterId(sortKey.direction(), id);
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+    
+    private String encodeCursor(SortKey sortKey, Product product) {
+        String value = switch (sortKey.property()) {
+            case "price" -> product.getPrice().toPlainString();
+            case "name" -> product.getName();
+            case "averageRating" -> String.valueOf(product.getAverageRating());
+            default -> "";
+        };
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((product.getId() + ":" + value).getBytes(StandardCharsets.UTF_8));
+    }
+}
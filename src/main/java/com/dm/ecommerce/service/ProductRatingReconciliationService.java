@@ -0,0 +1,51 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Checks the incrementally maintained product rating aggregates against the reviews, at
+ * startup and then periodically. The first run backfills aggregates for reviews that predate
+ * them; later runs repair, count and log any drift from review writes that bypassed
+ * {@link ReviewService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductRatingReconciliationService {
+    
+    private final ProductRepository productRepository;
+    private final ProductCatalogService productCatalogService;
+    private final MeterRegistry meterRegistry;
+    
+    private Counter driftedProducts;
+    
+    @PostConstruct
+    public void init() {
+        driftedProducts = Counter.builder("product.rating-reconciliation.drifted-products")
+                .description("Products whose rating aggregates were found out of step with their reviews and repaired")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Repair drifted rating aggregates.
+     */
+    @Scheduled(fixedDelayString = "${product.rating-reconciliation-interval:3600000}")
+    @Transactional
+    public void reconcile() {
+        int drifted = productRepository.repairDriftedRatings();
+        if (drifted > 0) {
+            driftedProducts.increment(drifted);
+            // Which products changed is not known, and drift should be rare
+            productCatalogService.evictAllProductsAfterCommit();
+            log.warn("Repaired rating aggregates of {} products that drifted from their reviews", drifted);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps the indexed {@code onSale} flag in step with each product's sale window.
+ * Saving a product already refreshes its flag; this job handles windows that open
+ * or close while the product is not being written.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSaleService {
+    
+    private final ProductRepository productRepository;
+    private final ProductCatalogService productCatalogService;
+    
+    /**
+     * Start sales whose window has opened and end sales whose window has closed.
+     */
+    @Scheduled(fixedDelayString = "${sales.refresh-interval:60000}")
+    @Transactional
+    public void refreshSaleState() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> started = productRepository.findSalesToStart(now);
+        List<Long> ended = productRepository.findSalesToEnd(now);
+        
+        if (!started.isEmpty()) {
+            productRepository.updateOnSale(started, true);
+        }
+        if (!ended.isEmpty()) {
+            productRepository.updateOnSale(ended, false);
+        }
+        
+        started.forEach(productCatalogService::evictProductAfterCommit);
+        ended.forEach(productCatalogService::evictProductAfterCommit);
+        
+        if (!started.isEmpty() || !ended.isEmpty()) {
+            log.info("Sale state refreshed: {} started, {} ended", started.size(), ended.size());
+        }
+    }
+}
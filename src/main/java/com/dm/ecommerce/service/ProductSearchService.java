@@ -0,0 +1,156 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.search.ProductSearchIndex;
+import com.dm.ecommerce.search.ProductSearchIndex.SearchResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service for full-text product search backed by an in-process inverted index.
+ * The index is rebuilt from the database at startup and kept in sync as
+ * products are saved and deleted. A rebuild fills a new index and swaps it in
+ * once complete, so searches never see a partly built index.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchService {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    // Replaced, never cleared, by a rebuild
+    private volatile ProductSearchIndex index = new ProductSearchIndex();
+
+    // Held for a whole rebuild, so rebuilds never overlap
+    private final Lock rebuildLock = new ReentrantLock();
+
+    // Orders product changes against the swap
+    private final Lock changeLock = new ReentrantLock();
+
+    // Changes made while a rebuild runs, replayed onto the new index before the swap
+    private List<Consumer<ProductSearchIndex>> pendingChanges;
+
+    /**
+     * Rebuild the index from the database once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        rebuildLock.lock();
+        try {
+            changeLock.lock();
+            try {
+                pendingChanges = new ArrayList<>();
+            } finally {
+                changeLock.unlock();
+            }
+
+            ProductSearchIndex rebuilt = new ProductSearchIndex();
+            Page<Product> batch;
+            int page = 0;
+            do {
+                batch = productRepository.findAll(PageRequest.of(page++, REBUILD_BATCH_SIZE, Sort.by("id")));
+                batch.forEach(product -> index(rebuilt, product));
+            } while (batch.hasNext());
+
+            // A change replayed here is never older than the row the batch read
+            changeLock.lock();
+            try {
+                pendingChanges.forEach(change -> change.accept(rebuilt));
+                pendingChanges = null;
+                index = rebuilt;
+            } finally {
+                changeLock.unlock();
+            }
+            log.info("Product search index built with {} products", rebuilt.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Add or update a product in the search index.
+     *
+     * @param product the saved product
+     */
+    public void indexProduct(Product product) {
+        apply(target -> index(target, product));
+    }
+
+    /**
+     * Remove a product from the search index.
+     *
+     * @param productId the deleted product ID
+     */
+    public void removeProduct(Long productId) {
+        apply(target -> target.remove(productId));
+    }
+
+    /**
+     * Search the index.
+     *
+     * @param keyword the free-text query
+     * @param page    the page number (0-based)
+     * @param size    the page size
+     * @return the matching product IDs, total hit count and suggestions
+     */
+    public SearchResult search(String keyword, int page, int size) {
+        return index.search(keyword, page, size);
+    }
+
+    /**
+     * Load the products for a search result, preserving rank order.
+     *
+     * @param result the search result
+     * @return the matching products, best first
+     */
+    public List<Product> loadProducts(SearchResult result) {
+        if (result.productIds().isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> productsById = productRepository.findAllById(result.productIds()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return result.productIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Apply a change to the live index, and to the index being rebuilt, if any.
+     */
+    private void apply(Consumer<ProductSearchIndex> change) {
+        changeLock.lock();
+        try {
+            change.accept(index);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    private static void index(ProductSearchIndex target, Product product) {
+        target.index(product.getId(), product.getName(), product.getDescription());
+    }
+}
@@ -0,0 +1,181 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.model.RefreshToken;
+import com.dm.ecommerce.model.RetiredRefreshToken;
+import com.dm.ecommerce.repository.RefreshTokenRepository;
+import com.dm.ecommerce.repository.RetiredRefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Issues, rotates and revokes refresh tokens.
+ * Access tokens are short-lived and verified without any lookup; only refreshing one
+ * touches the database. Every refresh rotates the token, so a refresh token works once;
+ * presenting a rotated-out token again revokes every token of its user, since either the
+ * user or whoever copied the token is using a stale one. A login session can be refreshed
+ * for at most {@code jwt.refresh-max-lifetime} from the login, however often it rotates.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+    
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RetiredRefreshTokenRepository retiredRefreshTokenRepository;
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    @Value("${jwt.refresh-expiration}")
+    private long refreshExpirationMs;
+    
+    @Value("${jwt.refresh-max-lifetime:2592000000}")
+    private long refreshMaxLifetimeMs;
+    
+    @Value("${jwt.refresh-cleanup.batch-size:1000}")
+    private int cleanupBatchSize;
+    
+    /**
+     * The result of a successful rotation.
+     *
+     * @param userId       the user the token was issued to
+     * @param refreshToken the replacement refresh token
+     */
+    public record Rotation(Long userId, String refreshToken) {
+    }
+    
+    /**
+     * Issue a new refresh token.
+     *
+     * @param userId the user ID
+     * @return the refresh token
+     */
+    @Transactional
+    public String issue(Long userId) {
+        String token = generateToken();
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.save(new RefreshToken(null, hash(token), userId, expiresAt(now, now), now));
+        return token;
+    }
+    
+    /**
+     * Exchange a refresh token for a new one. The presented token stops working. Presenting
+     * a token that was already rotated out revokes every refresh token of its user.
+     *
+     * @param token the refresh token
+     * @return an optional containing the rotation, or empty if the token is unknown, expired or already used
+     */
+    @Transactional
+    public Optional<Rotation> rotate(String token) {
+        String tokenHash = hash(token);
+        LocalDateTime now = LocalDateTime.now();
+        Optional<RefreshToken> stored = refreshTokenRepository.findActive(tokenHash, now);
+        if (stored.isEmpty()) {
+            retiredRefreshTokenRepository.findByTokenHash(tokenHash).ifPresent(retired -> {
+                log.warn("Rotated-out refresh token of user {} presented again, revoking all of the user's tokens",
+                        retired.getUserId());
+                refreshTokenRepository.deleteByUserId(retired.getUserId());
+            });
+            return Optional.empty();
+        }
+        
+        RefreshToken current = stored.get();
+        String replacement = generateToken();
+        int updated = refreshTokenRepository.rotate(current.getId(), tokenHash, hash(replacement),
+                expiresAt(current.getIssuedAt(), now));
+        if (updated == 0) {
+            // Lost a race with a concurrent refresh of the same token
+            return Optional.empty();
+        }
+        retiredRefreshTokenRepository.save(new RetiredRefreshToken(null, tokenHash, current.getUserId(),
+                lifetimeEnd(current.getIssuedAt())));
+        return Optional.of(new Rotation(current.getUserId(), replacement));
+    }
+    
+    /**
+     * Revoke a refresh token.
+     *
+     * @param token the refresh token
+     */
+    @Transactional
+    public void revoke(String token) {
+        refreshTokenRepository.deleteByTokenHash(hash(token));
+    }
+    
+    /**
+     * Revoke every refresh token issued to a user.
+     *
+     * @param userId the user ID
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+    
+    /**
+     * Delete expired refresh tokens in batches, each batch in its own short transaction.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup.interval:3600000}")
+    public void deleteExpiredTokens() {
+        LocalDateTime now = LocalDateTime.now();
+        PageRequest batch = PageRequest.of(0, cleanupBatchSize);
+        int deleted = 0;
+        
+        List<Long> ids;
+        while (!(ids = refreshTokenRepository.findExpiredIds(now, batch)).isEmpty()) {
+            refreshTokenRepository.deleteAllByIdInBatch(ids);
+            deleted += ids.size();
+        }
+        while (!(ids = retiredRefreshTokenRepository.findExpiredIds(now, batch)).isEmpty()) {
+            retiredRefreshTokenRepository.deleteAllByIdInBatch(ids);
+            deleted += ids.size();
+        }
+        
+        if (deleted > 0) {
+            log.info("Deleted {} expired and retired refresh tokens", deleted);
+        }
+    }
+    
+    /**
+     * The expiry of a token rotated now: the usual refresh window, capped at the end of the
+     * session's lifetime.
+     */
+    private LocalDateTime expiresAt(LocalDateTime issuedAt, LocalDateTime now) {
+        LocalDateTime expiresAt = now.plus(Duration.ofMillis(refreshExpirationMs));
+        LocalDateTime lifetimeEnd = lifetimeEnd(issuedAt);
+        return expiresAt.isBefore(lifetimeEnd) ? expiresAt : lifetimeEnd;
+    }
+    
+    private LocalDateTime lifetimeEnd(LocalDateTime issuedAt) {
+        return issuedAt.plus(Duration.ofMillis(refreshMaxLifetimeMs));
+    }
+    
+    private String generateToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+    
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.dto.ProductExportRow;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Materialized related-products index.
+ * Related products are the co-category neighbors of a product, ranked by rating and
+ * by how close their price is. Each product's neighbor list is computed once, kept
+ * up to date incrementally as products change, and served with a single keyed lookup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RelatedProductsService {
+    
+    public static final int MAX_RELATED = 50;
+    
+    private static final double RATING_WEIGHT = 0.5;
+    private static final double PRICE_WEIGHT = 0.5;
+    
+    private static final Comparator<Neighbor> BEST_FIRST = Comparator
+            .comparingDouble(Neighbor::score).reversed()
+            .thenComparingLong(Neighbor::id);
+    
+    private final ProductRepository productRepository;
+    
+    // Product ID -> ranking inputs
+    private final Map<Long, Member> members = new ConcurrentHashMap<>();
+    
+    // Category ID -> product IDs
+    private final Map<Long, Set<Long>> categories = new ConcurrentHashMap<>();
+    
+    // Product ID -> best neighbors, computed on first lookup
+    private final Map<Long, List<Neighbor>> related = new ConcurrentHashMap<>();
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private record Member(long id, Long categoryId, double price, double rating) {
+    }
+    
+    private record Neighbor(long id, double score) {
+    }
+    
+    /**
+     * Load every product into the index once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildIndex() {
+        lock.writeLock().lock();
+        try {
+            members.clear();
+            categories.clear();
+            related.clear();
+            try (Stream<ProductExportRow> rows = productRepository.streamExportRows()) {
+                rows.forEach(row -> addMember(new Member(row.getId(), row.getCategoryId(),
+                        row.getPrice().doubleValue(), row.getAverageRating())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Related products index built with {} products", members.size());
+    }
+    
+    /**
+     * Find the IDs of the products most related to the given product.
+     *
+     * @param productId the product ID
+     * @param limit     the maximum number of related products
+     * @return the related product IDs, best first
+     */
+    public List<Long> findRelatedIds(Long productId, int limit) {
+        List<Neighbor> neighbors = related.get(productId);
+        
+        if (neighbors == null) {
+            lock.readLock().lock();
+            try {
+                Member member = members.get(productId);
+                if (member == null) {
+                    return List.of();
+                }
+                neighbors = related.computeIfAbsent(productId, id -> computeNeighbors(member));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        
+        return neighbors.stream()
+                .limit(Math.min(limit, MAX_RELATED))
+                .map(Neighbor::id)
+                .toList();
+    }
+    
+    /**
+     * Add or update a product, adjusting the neighbor lists of its category.
+     *
+     * @param product the saved product
+     */
+    public void updateProduct(Product product) {
+        Long categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
+        Member member = new Member(product.getId(), categoryId,
+                product.getPrice().doubleValue(), product.getAverageRating());
+        
+        lock.writeLock().lock();
+        try {
+            Member previous = members.get(member.id());
+            if (previous != null) {
+                removeMember(previous);
+            }
+            addMember(member);
+            offerToCategory(member);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Change an indexed product's average rating, adjusting the neighbor lists of its category.
+     *
+     * @param productId     the product ID
+     * @param averageRating the product's new average rating
+     */
+    public void updateRating(Long productId, double averageRating) {
+        lock.writeLock().lock();
+        try {
+            Member previous = members.get(productId);
+            if (previous == null || previous.rating() == averageRating) {
+                return;
+            }
+            Member member = new Member(previous.id(), previous.categoryId(), previous.price(), averageRating);
+            removeMember(previous);
+            addMember(member);
+            offerToCategory(member);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Remove a deleted product from the index.
+     *
+     * @param productId the product ID
+     */
+    public void removeProduct(Long productId) {
+        lock.writeLock().lock();
+        try {
+            Member previous = members.get(productId);
+            if (previous != null) {
+                removeMember(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void addMember(Member member) {
+        members.put(member.id(), member);
+        if (member.categoryId() != null) {
+            categories.computeIfAbsent(member.categoryId(), id -> ConcurrentHashMap.newKeySet()).add(member.id());
+        }
+    }
+    
+    private void removeMember(Member member) {
+        members.remove(member.id());
+        related.remove(member.id());
+        if (member.categoryId() == null) {
+            return;
+        }
+        
+        Set<Long> categoryIds = categories.get(member.categoryId());
+        if (categoryIds != null) {
+            categoryIds.remove(member.id());
+        }
+        
+        // Lists that contained the product are recomputed on their next lookup
+        for (Long otherId : categoryMembers(member.categoryId())) {
+            List<Neighbor> neighbors = related.get(otherId);
+            if (neighbors != null && neighbors.stream().anyMatch(n -> n.id() == member.id())) {
+                related.remove(otherId);
+            }
+        }
+    }
+    
+    /**
+     * Offer a product to every computed list in its category.
+     */
+    private void offerToCategory(Member member) {
+        for (Long otherId : categoryMembers(member.categoryId())) {
+            if (otherId != member.id()) {
+                offerNeighbor(members.get(otherId), member);
+            }
+        }
+    }
+    
+    /**
+     * Insert a candidate into an already computed neighbor list if it ranks high enough.
+     */
+    private void offerNeighbor(Member owner, Member candidate) {
+        if (owner == null) {
+            return;
+        }
+        List<Neighbor> neighbors = related.get(owner.id());
+        if (neighbors == null) {
+            return;
+        }
+        
+        // A list shorter than the maximum already holds every other product in the category
+        if (neighbors.size() >= MAX_RELATED) {
+            Neighbor last = neighbors.get(neighbors.size() - 1);
+            Neighbor offered = new Neighbor(candidate.id(), score(owner, candidate));
+            if (BEST_FIRST.compare(offered, last) > 0) {
+                return;
+            }
+        }
+        
+        List<Neighbor> updated = new ArrayList<>(neighbors.size() + 1);
+        updated.addAll(neighbors);
+        updated.add(new Neighbor(candidate.id(), score(owner, candidate)));
+        updated.sort(BEST_FIRST);
+        related.put(owner.id(), List.copyOf(updated.subList(0, Math.min(updated.size(), MAX_RELATED))));
+    }
+    
+    /**
+     * Rank the co-category neighbors of a product, keeping the best in a bounded heap.
+     */
+    private List<Neighbor> computeNeighbors(Member member) {
+        PriorityQueue<Neighbor> heap = new PriorityQueue<>(MAX_RELATED + 1, BEST_FIRST.reversed());
+        
+        for (Long otherId : categoryMembers(member.categoryId())) {
+            Member other = members.get(otherId);
+            if (other == null || other.id() == member.id()) {
+                continue;
+            }
+            heap.offer(new Neighbor(other.id(), score(member, other)));
+            if (heap.size() > MAX_RELATED) {
+                heap.poll();
+            }
+        }
+        
+        List<Neighbor> neighbors = new ArrayList<>(heap);
+        neighbors.sort(BEST_FIRST);
+        return List.copyOf(neighbors);
+    }
+    
+    private Set<Long> categoryMembers(Long categoryId) {
+        return categoryId != null ? categories.getOrDefault(categoryId, Set.of()) : Set.of();
+    }
+    
+    /**
+     * Score a candidate for a product: higher rating and closer price rank higher.
+     */
+    private static double score(Member product, Member candidate) {
+        double ratingScore = candidate.rating() / 5.0;
+        double priceRatio = (candidate.price() + 1) / (product.price() + 1);
+        double priceScore = 1.0 / (1.0 + Math.abs(Math.log(priceRatio)));
+        return RATING_WEIGHT * ratingScore + PRICE_WEIGHT * priceScore;
+    }
+}
@@ -0,0 +1,134 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.model.Review;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.repository.ReviewRepository;
+import com.dm.ecommerce.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Creates, re-rates and deletes reviews. Each change moves the review's rating in the
+ * product's rating aggregates with one relative UPDATE in the same transaction, so
+ * concurrent reviews of a product serialize on its row instead of overwriting each other.
+ * Once the change commits, the cached product, whose ratings are now stale, is evicted and
+ * the product moves to its new average rating in the related-products index.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReviewService {
+    
+    private final ReviewRepository reviewRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ProductCatalogService productCatalogService;
+    private final RelatedProductsService relatedProductsService;
+    
+    /**
+     * Find a review by ID.
+     *
+     * @param id the review ID
+     * @return an optional containing the review, if found
+     */
+    @Transactional(readOnly = true)
+    public Optional<Review> findReviewById(Long id) {
+        return reviewRepository.findById(id);
+    }
+    
+    /**
+     * Review a product.
+     *
+     * @param userId    the reviewing user's ID
+     * @param productId the product ID
+     * @param rating    the star rating (1-5)
+     * @param comment   the comment, or null
+     * @return the saved review
+     * @throws IllegalArgumentException if the rating is out of range or the product does not exist
+     */
+    @Transactional
+    public Review createReview(Long userId, Long productId, Integer rating, String comment) {
+        requireValidRating(rating);
+        if (productRepository.adjustRatings(productId, 1, 0, rating) == 0) {
+            throw new IllegalArgumentException("Product not found with id: " + productId);
+        }
+        
+        Review review = new Review();
+        review.setProduct(productRepository.getReferenceById(productId));
+        review.setUser(userRepository.getReferenceById(userId));
+        review.setRating(rating);
+        review.setComment(comment);
+        review.setTimestamp(LocalDateTime.now());
+        ratingsChanged(productId);
+        return reviewRepository.save(review);
+    }
+    
+    /**
+     * Change a review's rating and comment.
+     *
+     * @param id      the review ID
+     * @param rating  the new star rating (1-5)
+     * @param comment the new comment, or null
+     * @return an optional containing the updated review, or empty if not found
+     * @throws IllegalArgumentException if the rating is out of range
+     */
+    @Transactional
+    public Optional<Review> updateReview(Long id, Integer rating, String comment) {
+        requireValidRating(rating);
+        return reviewRepository.findById(id).map(review -> {
+            if (!review.getRating().equals(rating)) {
+                productRepository.adjustRatings(review.getProduct().getId(), 0, review.getRating(), rating);
+            }
+            review.setRating(rating);
+            review.setComment(comment);
+            ratingsChanged(review.getProduct().getId());
+            return reviewRepository.save(review);
+        });
+    }
+    
+    /**
+     * Delete a review.
+     *
+     * @param id the review ID
+     * @return true if the review existed
+     */
+    @Transactional
+    public boolean deleteReview(Long id) {
+        Optional<Review> review = reviewRepository.findById(id);
+        if (review.isEmpty()) {
+            return false;
+        }
+        
+        reviewRepository.delete(review.get());
+        productRepository.adjustRatings(review.get().getProduct().getId(), -1, review.get().getRating(), 0);
+        ratingsChanged(review.get().getProduct().getId());
+        return true;
+    }
+    
+    /**
+     * Evict the product and move it in the related-products index once the change commits.
+     * The average is read now, while this transaction's rating update still holds the
+     * product row, so it is the average this transaction commits.
+     */
+    private void ratingsChanged(Long productId) {
+        productCatalogService.evictProductAfterCommit(productId);
+        productRepository.findAverageRatingById(productId).ifPresent(averageRating ->
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        relatedProductsService.updateRating(productId, averageRating);
+                    }
+                }));
+    }
+    
+    private static void requireValidRating(Integer rating) {
+        if (rating == null || rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.dm.ecommerce.service.cart;
+
+import com.dm.ecommerce.model.Cart;
+import com.dm.ecommerce.payload.CartOperation;
+import com.dm.ecommerce.repository.CartRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * JDBC access for coalesced cart writes: loads a cart in one query and writes changes for
+ * many carts as a few batched statements in one transaction. Used by the write-behind tier
+ * for its flushes, by both cart services for batches of operations, and by the database-backed
+ * cart service for checkout.
+ * Writes set absolute values, so writing the same change twice is harmless.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartBatchWriter {
+    
+    private static final String LOAD_CART_SQL =
+            "SELECT c.id AS cart_id, i.id AS item_id, i.product_id, i.quantity, i.unit_price, i.version " +
+            "FROM carts c LEFT JOIN cart_items i ON i.cart_id = c.id WHERE c.user_id = ? ORDER BY i.id";
+    
+    private static final String LOCK_CART_SQL =
+            "SELECT id FROM carts WHERE user_id = ? FOR UPDATE";
+    
+    private static final String UPSERT_LINE_SQL =
+            "MERGE INTO cart_items i " +
+            "USING (SELECT CAST(? AS BIGINT) AS cart_id, CAST(? AS BIGINT) AS product_id) v " +
+            "ON i.cart_id = v.cart_id AND i.product_id = v.product_id " +
+            "WHEN MATCHED THEN UPDATE SET quantity = ?, unit_price = ?, version = ? " +
+            "WHEN NOT MATCHED THEN INSERT (cart_id, product_id, quantity, unit_price, version) " +
+            "VALUES (v.cart_id, v.product_id, ?, ?, ?)";
+    
+    private static final String DELETE_LINE_SQL =
+            "DELETE FROM cart_items WHERE cart_id = ? AND product_id = ?";
+    
+    private static final String DELETE_ITEM_SQL =
+            "DELETE FROM cart_items WHERE cart_id = ? AND id = ? AND version = ?";
+    
+    private static final String RECALCULATE_TOTAL_SQL =
+            "UPDATE carts SET total_amount = " +
+            "COALESCE((SELECT SUM(quantity * unit_price) FROM cart_items WHERE cart_id = carts.id), 0) WHERE id = ?";
+    
+    private static final String UPDATE_TOTAL_SQL =
+            "UPDATE carts SET total_amount = ? WHERE id = ?";
+    
+    private static final String FIND_ITEM_IDS_SQL =
+            "SELECT cart_id, product_id, id FROM cart_items WHERE cart_id IN (:cartIds)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final CartRepository cartRepository;
+    private final CartOperationPlanner operationPlanner;
+    
+    /**
+     * The state of a cart line to write; a zero quantity deletes the line.
+     */
+    public record LineWrite(long cartId, long productId, int quantity, BigDecimal unitPrice, long version) {
+    }
+    
+    /**
+     * A cart total to write.
+     */
+    public record TotalWrite(long cartId, BigDecimal totalAmount) {
+    }
+    
+    /**
+     * Load a user's cart, creating an empty one if the user has none.
+     *
+     * @param userId the user ID
+     * @return an optional containing the cart, or empty if the user does not exist
+     */
+    @Transactional
+    public Optional<HotCart> load(Long userId) {
+        Optional<HotCart> cart = query(userId);
+        if (cart.isEmpty() && !cartRepository.lockUser(userId).isEmpty()) {
+            cartRepository.createIfMissing(userId);
+            cart = query(userId);
+        }
+        return cart;
+    }
+    
+    /**
+     * Write line and total changes, and look up the item IDs of the given carts' lines.
+     *
+     * @param lines          the line states to write
+     * @param totals         the cart totals to write
+     * @param itemIdsForCarts the carts whose new lines need their generated item IDs
+     * @return cart ID -> product ID -> item ID for the requested carts
+     */
+    @Transactional
+    public Map<Long, Map<Long, Long>> write(List<LineWrite> lines, List<TotalWrite> totals,
+                                            Collection<Long> itemIdsForCarts) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (LineWrite line : lines) {
+            if (line.quantity() > 0) {
+                upserts.add(new Object[]{line.cartId(), line.productId(),
+                        line.quantity(), line.unitPrice(), line.version(),
+                        line.quantity(), line.unitPrice(), line.version()});
+            } else {
+                deletes.add(new Object[]{line.cartId(), line.productId()});
+            }
+        }
+        
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_LINE_SQL, upserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_LINE_SQL, deletes);
+        }
+        if (!totals.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_TOTAL_SQL, totals.stream()
+                    .map(total -> new Object[]{total.totalAmount(), total.cartId()})
+                    .toList());
+        }
+        
+        Map<Long, Map<Long, Long>> itemIds = new HashMap<>();
+        if (!itemIdsForCarts.isEmpty()) {
+            new NamedParameterJdbcTemplate(jdbcTemplate).query(FIND_ITEM_IDS_SQL,
+                    new MapSqlParameterSource("cartIds", itemIdsForCarts),
+                    rs -> {
+                        itemIds.computeIfAbsent(rs.getLong("cart_id"), id -> new HashMap<>())
+                                .put(rs.getLong("product_id"), rs.getLong("id"));
+                    });
+        }
+        return itemIds;
+    }
+    
+    /**
+     * Apply a batch of operations to a user's cart in the database, all or nothing. The cart
+     * row is locked first, as every other cart write does, so the items read after it stay
+     * current until the batch commits.
+     *
+     * @param userId     the user ID
+     * @param operations the operations
+     * @param prices     the prices of the products added, from {@link CartOperationPlanner#priceProducts}
+     */
+    @Transactional
+    public void applyOperations(Long userId, List<CartOperation> operations, Map<Long, BigDecimal> prices) {
+        if (jdbcTemplate.queryForList(LOCK_CART_SQL, Long.class, userId).isEmpty()) {
+            // Users created before carts were have none yet
+            cartRepository.lockUser(userId);
+            cartRepository.createIfMissing(userId);
+        }
+        HotCart cart = query(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
+        operationPlanner.plan(cart, operations, prices).forEach(cart::apply);
+        
+        List<LineWrite> lines = new ArrayList<>();
+        for (HotCart.Line line : cart.lines.values()) {
+            if (line.dirty) {
+                lines.add(new LineWrite(cart.cartId, line.productId, line.quantity, line.unitPrice, line.version));
+            }
+        }
+        write(lines, List.of(new TotalWrite(cart.cartId, cart.totalAmount)), List.of());
+    }
+    
+    /**
+     * Check out a user's cart in the database. The cart row is locked first, as every other
+     * cart write does, and stays locked until the surrounding transaction commits. The cart is
+     * repriced in memory and passed to the action; then the lines it held are deleted, each
+     * only if still at the version read, and the total is recomputed from what is left.
+     *
+     * @param userId     the user ID
+     * @param placeOrder places an order for the repriced cart, in the same transaction
+     * @return the action's result
+     */
+    @Transactional
+    public <T> T checkout(Long userId, Function<Cart, T> placeOrder) {
+        if (jdbcTemplate.queryForList(LOCK_CART_SQL, Long.class, userId).isEmpty()) {
+            return placeOrder.apply(new Cart());
+        }
+        HotCart cart = query(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
+        List<Object[]> deletes = new ArrayList<>();
+        for (HotCart.Line line : cart.lines.values()) {
+            deletes.add(new Object[]{cart.cartId, line.itemId, line.version});
+        }
+        
+        // Repriced lines are deleted below, so their new prices are never written
+        operationPlanner.reprice(cart).forEach(cart::apply);
+        T result = placeOrder.apply(operationPlanner.toCart(cart));
+        
+        jdbcTemplate.batchUpdate(DELETE_ITEM_SQL, deletes);
+        jdbcTemplate.update(RECALCULATE_TOTAL_SQL, cart.cartId);
+        return result;
+    }
+    
+    private Optional<HotCart> query(Long userId) {
+        List<HotCart> carts = new ArrayList<>(1);
+        jdbcTemplate.query(LOAD_CART_SQL, rs -> {
+            if (carts.isEmpty()) {
+                carts.add(new HotCart(userId, rs.getLong("cart_id")));
+            }
+            long itemId = rs.getLong("item_id");
+            if (!rs.wasNull()) {
+                HotCart.Line line = new HotCart.Line(itemId, rs.getLong("product_id"),
+                        rs.getInt("quantity"), rs.getBigDecimal("unit_price"), rs.getLong("version"));
+                HotCart cart = carts.get(0);
+                cart.lines.put(line.productId, line);
+                cart.totalAmount = cart.totalAmount.add(line.subtotal());
+            }
+        }, userId);
+        return carts.stream().findFirst();
+    }
+}
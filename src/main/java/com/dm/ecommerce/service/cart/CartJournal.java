@@ -0,0 +1,364 @@
+package com.dm.ecommerce.service.cart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local journal of cart changes not yet flushed to the database.
+ * Records hold the absolute state of a line after each change, so replaying a journal
+ * whose changes were already flushed is harmless. The journal is split into numbered
+ * segments: a flush rotates to a new segment and deletes the older ones once it commits.
+ * Each record is framed as length, payload and CRC; replay stops at a torn final record.
+ * A batch of entries shares one record, so it is replayed entirely or not at all.
+ * A synchronous journal forces records to disk before appends return, one force for
+ * every append that arrived while the previous force ran.
+ * Changes that the database keeps rejecting are moved to a quarantine file, in the same
+ * format, which is never replayed.
+ */
+final class CartJournal implements AutoCloseable {
+    
+    private static final String SEGMENT_PREFIX = "cart-journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String QUARANTINE_FILE = "cart-quarantine.log";
+    
+    // Larger than any valid record, even a full batch; a larger length means a corrupt frame
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    
+    private static final byte LINE = 1;
+    private static final byte CLEAR = 2;
+    private static final byte BATCH = 3;
+    
+    private final Path directory;
+    private final boolean sync;
+    
+    // Taken before this journal's monitor when both are held
+    private final ReentrantLock syncLock = new ReentrantLock();
+    
+    private long segment;
+    private FileChannel channel;
+    
+    // Records appended so far, guarded by the monitor, and how many of them are known to be
+    // on disk, guarded by syncLock
+    private long written;
+    private long synced;
+    
+    /**
+     * A journaled change: a line set to an absolute state, or a cleared cart.
+     */
+    record Entry(long userId, Long productId, int quantity, BigDecimal unitPrice, long version) {
+        
+        static Entry line(long userId, long productId, int quantity, BigDecimal unitPrice, long version) {
+            return new Entry(userId, productId, quantity, unitPrice, version);
+        }
+        
+        static Entry clear(long userId) {
+            return new Entry(userId, null, 0, null, 0);
+        }
+        
+        boolean isClear() {
+            return productId == null;
+        }
+    }
+    
+    CartJournal(Path directory, boolean sync) {
+        this.directory = directory.toAbsolutePath();
+        this.sync = sync;
+    }
+    
+    /**
+     * Replay every existing segment in order, then start a new segment for appends.
+     *
+     * @param consumer receives each journaled entry
+     * @return the number of entries replayed
+     */
+    synchronized int open(Consumer<Entry> consumer) {
+        try {
+            Files.createDirectories(directory);
+            int replayed = 0;
+            for (long existing : listSegments()) {
+                replayed += readSegment(segmentPath(existing), consumer);
+                segment = Math.max(segment, existing);
+            }
+            openSegment(segment + 1);
+            return replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open cart journal in " + directory, e);
+        }
+    }
+    
+    /**
+     * Append an entry, returning once it is on disk if the journal is synchronous.
+     *
+     * @param entry the entry
+     */
+    void append(Entry entry) {
+        append(List.of(entry));
+    }
+    
+    /**
+     * Append entries as one record, so a crash keeps either all of them or none.
+     *
+     * @param entries the entries, in the order they apply
+     */
+    void append(List<Entry> entries) {
+        if (!entries.isEmpty()) {
+            awaitSync(writeRecord(encode(entries)));
+        }
+    }
+    
+    /**
+     * Set entries aside in the quarantine file, which is kept for inspection and never replayed.
+     *
+     * @param entries the entries
+     */
+    synchronized void quarantine(List<Entry> entries) {
+        try (FileChannel quarantine = FileChannel.open(directory.resolve(QUARANTINE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            write(quarantine, encode(entries));
+            quarantine.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to quarantine cart journal entries", e);
+        }
+    }
+    
+    /**
+     * Start a new segment. Entries appended before this call are in segments up to the returned one.
+     *
+     * @return the segment that was current before rotating
+     */
+    long rotate() {
+        syncLock.lock();
+        try {
+            synchronized (this) {
+                long previous = segment;
+                closeSegment();
+                openSegment(segment + 1);
+                return previous;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rotate cart journal", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+    
+    /**
+     * Delete segments up to and including the given one, after their changes were flushed.
+     *
+     * @param lastSegment the last segment to delete
+     */
+    synchronized void deleteThrough(long lastSegment) {
+        try {
+            for (long existing : listSegments()) {
+                if (existing <= lastSegment) {
+                    Files.deleteIfExists(segmentPath(existing));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete flushed cart journal segments", e);
+        }
+    }
+    
+    @Override
+    public void close() {
+        syncLock.lock();
+        try {
+            synchronized (this) {
+                if (channel != null) {
+                    closeSegment();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close cart journal", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+    
+    private synchronized long writeRecord(byte[] payload) {
+        write(channel, payload);
+        return ++written;
+    }
+    
+    /**
+     * Wait until the given record is on disk. Whoever gets here first forces every record
+     * written so far, so appenders arriving during a force share the next one instead of
+     * forcing one at a time.
+     */
+    private void awaitSync(long record) {
+        if (!sync) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (synced >= record) {
+                return;
+            }
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = written;
+                current = channel;
+            }
+            current.force(false);
+            synced = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync cart journal", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+    
+    // Called holding both locks; whatever was written to the segment is on disk once it closes
+    private void closeSegment() throws IOException {
+        if (sync) {
+            channel.force(false);
+        }
+        channel.close();
+        synced = written;
+    }
+    
+    private void write(FileChannel target, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 8);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue()).flip();
+        try {
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to cart journal", e);
+        }
+    }
+    
+    private void openSegment(long number) throws IOException {
+        segment = number;
+        channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+    
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX);
+    }
+    
+    private static int readSegment(Path file, Consumer<Entry> consumer) throws IOException {
+        int count = 0;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            while (true) {
+                int length = input.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                input.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (input.readInt() != (int) crc.getValue()) {
+                    break;
+                }
+                for (Entry entry : decode(payload)) {
+                    consumer.accept(entry);
+                    count++;
+                }
+            }
+        } catch (EOFException e) {
+            // End of segment, or a record torn by a crash mid-write
+        }
+        return count;
+    }
+    
+    private static byte[] encode(List<Entry> entries) {
+        if (entries.size() == 1) {
+            return encode(entries.get(0));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48 * entries.size());
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(BATCH);
+            output.writeInt(entries.size());
+            for (Entry entry : entries) {
+                output.write(encode(entry));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (bytes.size() > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Too many cart changes to journal at once: " + entries.size());
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static byte[] encode(Entry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(entry.isClear() ? CLEAR : LINE);
+            output.writeLong(entry.userId());
+            if (!entry.isClear()) {
+                output.writeLong(entry.productId());
+                output.writeInt(entry.quantity());
+                output.writeLong(entry.version());
+                output.writeUTF(entry.unitPrice().toPlainString());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static List<Entry> decode(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        if (payload[0] != BATCH) {
+            return List.of(decode(input));
+        }
+        input.readByte();
+        int count = input.readInt();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(decode(input));
+        }
+        return entries;
+    }
+    
+    private static Entry decode(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        long userId = input.readLong();
+        if (type == CLEAR) {
+            return Entry.clear(userId);
+        }
+        long productId = input.readLong();
+        int quantity = input.readInt();
+        long version = input.readLong();
+        BigDecimal unitPrice = new BigDecimal(input.readUTF());
+        return Entry.line(userId, productId, quantity, unitPrice, version);
+    }
+}
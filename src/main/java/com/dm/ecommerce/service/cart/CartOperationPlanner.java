@@ -0,0 +1,219 @@
+package com.dm.ecommerce.service.cart;
+
+import com.dm.ecommerce.model.Cart;
+import com.dm.ecommerce.model.CartItem;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.payload.CartOperation;
+import com.dm.ecommerce.service.ProductCatalogService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a batch of cart operations into the line changes they make, shared by both cart
+ * services. Operations are checked against a copy of the cart, so a batch with any invalid
+ * operation changes nothing. Repricing and the cart view clients see are worked out here
+ * too, from the catalog cache.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartOperationPlanner {
+    
+    private final ProductCatalogService productCatalogService;
+    
+    @Value("${cart.batch.max-operations:100}")
+    private int maxOperations;
+    
+    /**
+     * Check the shape of each operation and price every product the batch adds, with one
+     * catalog lookup for the whole batch.
+     *
+     * @param operations the operations
+     * @return product ID -> current price for every product added
+     * @throws IllegalArgumentException if an operation is malformed or names an unknown product
+     */
+    public Map<Long, BigDecimal> priceProducts(List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
+        if (operations.size() > maxOperations) {
+            throw new IllegalArgumentException("At most " + maxOperations + " operations are allowed per request");
+        }
+        
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            CartOperation operation = operations.get(i);
+            if (operation == null || operation.getType() == null) {
+                throw invalid(i, "type is required");
+            }
+            switch (operation.getType()) {
+                case ADD -> {
+                    require(i, operation.getProductId(), "productId");
+                    requirePositive(i, operation.getQuantity());
+                    productIds.add(operation.getProductId());
+                }
+                case UPDATE -> {
+                    require(i, operation.getItemId(), "itemId");
+                    requirePositive(i, operation.getQuantity());
+                }
+                case REMOVE -> require(i, operation.getItemId(), "itemId");
+                case CLEAR -> {
+                }
+            }
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (Product product : productCatalogService.findProductsByIds(new ArrayList<>(productIds))) {
+            prices.put(product.getId(), product.currentPriceAt(now));
+        }
+        for (Long productId : productIds) {
+            if (!prices.containsKey(productId)) {
+                throw new IllegalArgumentException("Product not found with id: " + productId);
+            }
+        }
+        return prices;
+    }
+    
+    /**
+     * Work out the journal entries that apply the operations to a cart, in order. The cart
+     * itself is left unchanged.
+     *
+     * @param cart       the cart
+     * @param operations operations already checked by {@link #priceProducts}
+     * @param prices     the prices returned by {@link #priceProducts}
+     * @return one entry per operation
+     * @throws IllegalArgumentException if an operation names an item not in the cart
+     * @throws org.springframework.dao.OptimisticLockingFailureException if an item is not at the expected version
+     */
+    List<CartJournal.Entry> plan(HotCart cart, List<CartOperation> operations, Map<Long, BigDecimal> prices) {
+        HotCart scratch = cart.copy();
+        List<CartJournal.Entry> entries = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            CartOperation operation = operations.get(i);
+            CartJournal.Entry entry = switch (operation.getType()) {
+                case ADD -> {
+                    HotCart.Line line = scratch.lines.get(operation.getProductId());
+                    if (line != null && !line.isRemoved()) {
+                        yield line(scratch, line.productId, line.quantity + operation.getQuantity(),
+                                line.unitPrice, line.version + 1);
+                    }
+                    yield line(scratch, operation.getProductId(), operation.getQuantity(),
+                            prices.get(operation.getProductId()), line != null ? line.version + 1 : 0);
+                }
+                case UPDATE -> {
+                    HotCart.Line line = findLine(cart, scratch, i, operation);
+                    yield line(scratch, line.productId, operation.getQuantity(), line.unitPrice, line.version + 1);
+                }
+                case REMOVE -> {
+                    HotCart.Line line = findLine(cart, scratch, i, operation);
+                    yield line(scratch, line.productId, 0, line.unitPrice, line.version + 1);
+                }
+                case CLEAR -> CartJournal.Entry.clear(scratch.userId);
+            };
+            scratch.apply(entry);
+            entries.add(entry);
+        }
+        return entries;
+    }
+    
+    /**
+     * Work out the journal entries that reprice a cart's lines at the current product prices.
+     * Lines whose product no longer exists keep their price. The cart itself is left unchanged.
+     *
+     * @param cart the cart
+     * @return one entry per line whose price changed
+     */
+    List<CartJournal.Entry> reprice(HotCart cart) {
+        List<Long> productIds = cart.lines.values().stream()
+                .filter(line -> !line.isRemoved())
+                .map(line -> line.productId)
+                .toList();
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<CartJournal.Entry> entries = new ArrayList<>();
+        for (Product product : productCatalogService.findProductsByIds(productIds)) {
+            HotCart.Line line = cart.lines.get(product.getId());
+            BigDecimal price = product.currentPriceAt(now);
+            if (price.compareTo(line.unitPrice) != 0) {
+                entries.add(line(cart, line.productId, line.quantity, price, line.version + 1));
+            }
+        }
+        return entries;
+    }
+    
+    /**
+     * Build the cart clients see, with each line's product from the catalog; the product
+     * of a line whose product no longer exists is null.
+     *
+     * @param hotCart the cart
+     * @return the cart, with its items addressed by {@link HotCart.Line#clientId()}
+     */
+    Cart toCart(HotCart hotCart) {
+        List<HotCart.Line> lines = hotCart.lines.values().stream()
+                .filter(line -> !line.isRemoved())
+                .toList();
+        Map<Long, Product> products = productCatalogService.findProductsByIds(
+                        lines.stream().map(line -> line.productId).toList()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        Cart cart = new Cart();
+        cart.setId(hotCart.cartId);
+        for (HotCart.Line line : lines) {
+            CartItem item = new CartItem();
+            item.setId(line.clientId());
+            item.setCart(cart);
+            item.setProduct(products.get(line.productId));
+            item.setQuantity(line.quantity);
+            item.setUnitPrice(line.unitPrice);
+            item.setVersion(line.version);
+            cart.getItems().add(item);
+        }
+        cart.setTotalAmount(hotCart.totalAmount);
+        return cart;
+    }
+    
+    private static CartJournal.Entry line(HotCart cart, Long productId, int quantity, BigDecimal unitPrice, long version) {
+        return CartJournal.Entry.line(cart.userId, productId, quantity, unitPrice, version);
+    }
+    
+    /**
+     * Find an item's line in the scratch copy, checking its version against the cart as it
+     * was before the batch, since that is the version the client saw.
+     */
+    private static HotCart.Line findLine(HotCart cart, HotCart scratch, int index, CartOperation operation) {
+        cart.findLine(operation.getItemId(), operation.getVersion());
+        HotCart.Line line = scratch.findByItemId(operation.getItemId());
+        if (line == null) {
+            throw invalid(index, "cart item " + operation.getItemId() + " is not in the cart");
+        }
+        return line;
+    }
+    
+    private static void require(int index, Object value, String field) {
+        if (value == null) {
+            throw invalid(index, field + " is required");
+        }
+    }
+    
+    private static void requirePositive(int index, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw invalid(index, "quantity must be greater than zero");
+        }
+    }
+    
+    private static IllegalArgumentException invalid(int index, String reason) {
+        return new IllegalArgumentException("Operation " + index + ": " + reason);
+    }
+}
@@ -0,0 +1,152 @@
+package com.dm.ecommerce.service.cart;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A user's cart held in memory by the write-behind tier, guarded by the user's stripe lock.
+ * Removed lines stay behind as zero-quantity tombstones until the removal is flushed.
+ */
+final class HotCart {
+    
+    // Negative, so temporary IDs never collide with database item IDs
+    private static final AtomicLong TEMPORARY_IDS = new AtomicLong();
+    
+    final Long userId;
+    final Long cartId;
+    
+    // Product ID -> line; a product has at most one line per cart
+    final Map<Long, Line> lines = new LinkedHashMap<>();
+    
+    BigDecimal totalAmount = BigDecimal.ZERO;
+    boolean dirty;
+    long lastAccessedAt = System.nanoTime();
+    
+    // Consecutive flushes the database rejected this cart's changes in
+    int rejectedWrites;
+    
+    HotCart(Long userId, Long cartId) {
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+    
+    /**
+     * A cart line. Lines not yet flushed have no item ID, and are addressed by a negative
+     * temporary ID until they are dropped from memory, even after they are flushed.
+     */
+    static final class Line {
+        Long itemId;
+        Long temporaryId;
+        final Long productId;
+        int quantity;
+        BigDecimal unitPrice;
+        long version;
+        boolean dirty;
+        
+        Line(Long itemId, Long productId, int quantity, BigDecimal unitPrice, long version) {
+            this.itemId = itemId;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.version = version;
+        }
+        
+        boolean isRemoved() {
+            return quantity == 0;
+        }
+        
+        /**
+         * The ID clients address this line by: the item ID once it has one, else the temporary ID.
+         */
+        Long clientId() {
+            return itemId != null ? itemId : temporaryId;
+        }
+        
+        BigDecimal subtotal() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+    
+    /**
+     * A copy to try changes on without touching this cart.
+     */
+    HotCart copy() {
+        HotCart copy = new HotCart(userId, cartId);
+        for (Line line : lines.values()) {
+            Line lineCopy = new Line(line.itemId, line.productId, line.quantity, line.unitPrice, line.version);
+            lineCopy.temporaryId = line.temporaryId;
+            copy.lines.put(line.productId, lineCopy);
+        }
+        copy.totalAmount = totalAmount;
+        return copy;
+    }
+    
+    Line findByItemId(Long itemId) {
+        for (Line line : lines.values()) {
+            if ((itemId.equals(line.itemId) || itemId.equals(line.temporaryId)) && !line.isRemoved()) {
+                return line;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Find a line by item ID, checking that it is still at the expected version.
+     *
+     * @return the line, or null if the item is not in the cart
+     */
+    Line findLine(Long itemId, Long version) {
+        Line line = findByItemId(itemId);
+        if (line != null && version != null && line.version != version) {
+            throw new OptimisticLockingFailureException("Cart item " + itemId + " was changed by another request");
+        }
+        return line;
+    }
+    
+    /**
+     * Set a line to an absolute state, keeping the total in step by delta.
+     */
+    void apply(Long productId, int quantity, BigDecimal unitPrice, long version) {
+        Line line = lines.get(productId);
+        if (line == null) {
+            line = new Line(null, productId, 0, unitPrice, version);
+            line.temporaryId = -TEMPORARY_IDS.incrementAndGet();
+            lines.put(productId, line);
+        }
+        totalAmount = totalAmount.subtract(line.subtotal());
+        line.quantity = quantity;
+        line.unitPrice = unitPrice;
+        line.version = version;
+        line.dirty = true;
+        totalAmount = totalAmount.add(line.subtotal());
+        dirty = true;
+    }
+    
+    /**
+     * Apply a journaled change.
+     */
+    void apply(CartJournal.Entry entry) {
+        if (entry.isClear()) {
+            clear();
+        } else {
+            apply(entry.productId(), entry.quantity(), entry.unitPrice(), entry.version());
+        }
+    }
+    
+    /**
+     * Remove every line, leaving tombstones for the lines to delete.
+     */
+    void clear() {
+        for (Line line : List.copyOf(lines.values())) {
+            if (!line.isRemoved()) {
+                apply(line.productId, 0, line.unitPrice, line.version + 1);
+            }
+        }
+        dirty = true;
+    }
+}
@@ -0,0 +1,489 @@
+package com.dm.ecommerce.service.cart;
+
+import com.dm.ecommerce.model.Cart;
+import com.dm.ecommerce.model.CartItem;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.payload.CartOperation;
+import com.dm.ecommerce.service.CartService;
+import com.dm.ecommerce.service.ProductCatalogService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Write-behind cart service. Carts are kept in memory once touched, and changes are
+ * coalesced there and written to the database in batches on an interval, so a burst of
+ * quantity changes costs one write per line. Every change is first appended to a local
+ * journal, which is replayed on startup, so a crash loses no acknowledged change.
+ * <p>
+ * Lines added since the last flush are shown with negative temporary item IDs, which keep
+ * working after the flush for as long as the cart stays in memory.
+ * <p>
+ * Each user's cart is guarded by one of a fixed set of striped locks. Flushes are
+ * serialized, so the database only ever moves forward to newer cart states. The tier
+ * assumes each user's requests reach the same node; disable it when that does not hold.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class WriteBehindCartService implements CartService {
+    
+    private final CartBatchWriter batchWriter;
+    private final ProductCatalogService productCatalogService;
+    private final CartOperationPlanner operationPlanner;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${cart.write-behind.journal-path:${java.io.tmpdir}/ecommerce/cart-journal}")
+    private String journalPath;
+    
+    @Value("${cart.write-behind.journal-sync:true}")
+    private boolean journalSync;
+    
+    @Value("${cart.write-behind.lock-stripes:64}")
+    private int lockStripes;
+    
+    @Value("${cart.write-behind.idle-timeout:10m}")
+    private Duration idleTimeout;
+    
+    @Value("${cart.write-behind.max-rejected-writes:3}")
+    private int maxRejectedWrites;
+    
+    private final Map<Long, HotCart> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    private ReentrantLock[] stripes;
+    private CartJournal journal;
+    private Timer flushTimer;
+    private Counter flushedLines;
+    private Counter quarantinedCarts;
+    
+    /**
+     * Create the locks and meters, then replay and flush any journal left by a previous run.
+     */
+    @PostConstruct
+    public void init() {
+        stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, lockStripes))];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        
+        flushTimer = Timer.builder("cart.write-behind.flush")
+                .description("Time to write a batch of cart changes to the database")
+                .register(meterRegistry);
+        flushedLines = Counter.builder("cart.write-behind.flushed-lines")
+                .description("Cart lines written to the database")
+                .register(meterRegistry);
+        quarantinedCarts = Counter.builder("cart.write-behind.quarantined-carts")
+                .description("Carts whose unwritten changes were set aside after the database kept rejecting them")
+                .register(meterRegistry);
+        Gauge.builder("cart.write-behind.carts", carts, Map::size)
+                .description("Carts held in memory")
+                .register(meterRegistry);
+        Gauge.builder("cart.write-behind.dirty-carts", dirtyUsers, Set::size)
+                .description("Carts with changes not yet written to the database")
+                .register(meterRegistry);
+        
+        journal = new CartJournal(Path.of(journalPath), journalSync);
+        int replayed = journal.open(this::replay);
+        if (replayed > 0) {
+            log.info("Replayed {} cart journal entries for {} carts", replayed, dirtyUsers.size());
+            flush();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        journal.close();
+    }
+    
+    @Override
+    public Cart getCart(Long userId) {
+        return withCart(userId, operationPlanner::toCart);
+    }
+    
+    @Override
+    public void addItem(Long userId, Long productId, int quantity) {
+        Product product = productCatalogService.findProductById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
+        BigDecimal price = product.currentPriceAt(LocalDateTime.now());
+        
+        withCart(userId, cart -> {
+            HotCart.Line line = cart.lines.get(productId);
+            if (line != null && !line.isRemoved()) {
+                change(cart, productId, line.quantity + quantity, line.unitPrice, line.version + 1);
+            } else {
+                change(cart, productId, quantity, price, line != null ? line.version + 1 : 0);
+            }
+            return null;
+        });
+    }
+    
+    @Override
+    public boolean updateItemQuantity(Long userId, Long itemId, int quantity, Long version) {
+        return withCart(userId, cart -> {
+            HotCart.Line line = cart.findLine(itemId, version);
+            if (line == null) {
+                return false;
+            }
+            change(cart, line.productId, quantity, line.unitPrice, line.version + 1);
+            return true;
+        });
+    }
+    
+    @Override
+    public boolean removeItem(Long userId, Long itemId, Long version) {
+        return withCart(userId, cart -> {
+            HotCart.Line line = cart.findLine(itemId, version);
+            if (line == null) {
+                return false;
+            }
+            change(cart, line.productId, 0, line.unitPrice, line.version + 1);
+            return true;
+        });
+    }
+    
+    @Override
+    public void clearCart(Long userId) {
+        withCart(userId, cart -> {
+            journal.append(CartJournal.Entry.clear(userId));
+            cart.clear();
+            dirtyUsers.add(userId);
+            return null;
+        });
+    }
+    
+    @Override
+    public void applyOperations(Long userId, List<CartOperation> operations) {
+        Map<Long, BigDecimal> prices = operationPlanner.priceProducts(operations);
+        withCart(userId, cart -> {
+            // One journal record for the whole batch, so a crash replays all of it or none
+            List<CartJournal.Entry> entries = operationPlanner.plan(cart, operations, prices);
+            journal.append(entries);
+            entries.forEach(cart::apply);
+            dirtyUsers.add(userId);
+            return null;
+        });
+    }
+    
+    @Override
+    public boolean repriceCart(Long userId) {
+        return withCart(userId, this::reprice);
+    }
+    
+    @Override
+    public <T> T checkout(Long userId, Function<Cart, T> placeOrder) {
+        return withCart(userId, cart -> {
+            reprice(cart);
+            Cart ordered = operationPlanner.toCart(cart);
+            T result = placeOrder.apply(ordered);
+            
+            List<CartJournal.Entry> removals = new ArrayList<>();
+            for (CartItem item : ordered.getItems()) {
+                HotCart.Line line = cart.findByItemId(item.getId());
+                if (line != null && item.getVersion() == line.version) {
+                    removals.add(CartJournal.Entry.line(userId, line.productId, 0, line.unitPrice, line.version + 1));
+                }
+            }
+            journal.append(removals);
+            removals.forEach(cart::apply);
+            dirtyUsers.add(userId);
+            return result;
+        });
+    }
+    
+    @Override
+    public void flushCart(Long userId) {
+        flushLock.lock();
+        try {
+            if (dirtyUsers.contains(userId)) {
+                write(List.of(userId));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Write every changed cart to the database, then drop the journal segments that held
+     * those changes and evict idle carts. Carts that failed to write were journaled again
+     * in the current segment, so the older segments can go either way.
+     */
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            long segment = journal.rotate();
+            awaitChangesInProgress();
+            write(new ArrayList<>(dirtyUsers));
+            journal.deleteThrough(segment);
+            evictIdleCarts();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Wait until every change in progress has finished. A change journaled to the segment
+     * just rotated out may not have marked its cart dirty yet; it holds its stripe lock
+     * from the append to the mark, so passing through every stripe waits for it.
+     */
+    private void awaitChangesInProgress() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+            stripe.unlock();
+        }
+    }
+    
+    /**
+     * Write the given users' carts in one batch, falling back to one cart at a time if the
+     * batch fails so one bad cart can not hold back the rest.
+     */
+    private void write(List<Long> userIds) {
+        List<CartSnapshot> snapshots = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            CartSnapshot snapshot = snapshot(userId);
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        
+        try {
+            writeSnapshots(snapshots);
+            return;
+        } catch (Exception e) {
+            if (snapshots.size() == 1) {
+                onWriteFailed(snapshots.get(0), e);
+                return;
+            }
+            log.warn("Failed to write {} carts, retrying one at a time: {}", snapshots.size(), e.getMessage());
+        }
+        for (CartSnapshot snapshot : snapshots) {
+            try {
+                writeSnapshots(List.of(snapshot));
+            } catch (Exception e) {
+                onWriteFailed(snapshot, e);
+            }
+        }
+    }
+    
+    private void writeSnapshots(List<CartSnapshot> snapshots) throws Exception {
+        List<CartBatchWriter.LineWrite> lines = new ArrayList<>();
+        List<CartBatchWriter.TotalWrite> totals = new ArrayList<>();
+        Set<Long> itemIdsForCarts = new HashSet<>();
+        for (CartSnapshot snapshot : snapshots) {
+            lines.addAll(snapshot.writes());
+            totals.add(snapshot.total());
+            if (snapshot.hasNewLines()) {
+                itemIdsForCarts.add(snapshot.cart().cartId);
+            }
+        }
+        
+        Map<Long, Map<Long, Long>> itemIds = flushTimer.recordCallable(
+                () -> batchWriter.write(lines, totals, itemIdsForCarts));
+        flushedLines.increment(lines.size());
+        snapshots.forEach(snapshot -> onWritten(snapshot, itemIds.getOrDefault(snapshot.cart().cartId, Map.of())));
+    }
+    /**
+     * A cart's changed lines and total, taken under its lock and marked clean.
+     */
+    private record CartSnapshot(HotCart cart, List<HotCart.Line> lines,
+                                List<CartBatchWriter.LineWrite> writes, CartBatchWriter.TotalWrite total,
+                                boolean hasNewLines) {
+    }
+    
+    private CartSnapshot snapshot(Long userId) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            dirtyUsers.remove(userId);
+            HotCart cart = carts.get(userId);
+            if (cart == null || !cart.dirty) {
+                return null;
+            }
+            
+            List<HotCart.Line> lines = new ArrayList<>();
+            List<CartBatchWriter.LineWrite> writes = new ArrayList<>();
+            boolean hasNewLines = false;
+            for (HotCart.Line line : cart.lines.values()) {
+                if (line.dirty) {
+                    lines.add(line);
+                    writes.add(new CartBatchWriter.LineWrite(cart.cartId, line.productId,
+                            line.quantity, line.unitPrice, line.version));
+                    hasNewLines |= line.itemId == null && !line.isRemoved();
+                    line.dirty = false;
+                }
+            }
+            cart.dirty = false;
+            return new CartSnapshot(cart, lines, writes,
+                    new CartBatchWriter.TotalWrite(cart.cartId, cart.totalAmount), hasNewLines);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void onWritten(CartSnapshot snapshot, Map<Long, Long> itemIds) {
+        HotCart cart = snapshot.cart();
+        ReentrantLock lock = stripeFor(cart.userId);
+        lock.lock();
+        try {
+            cart.rejectedWrites = 0;
+            for (HotCart.Line line : snapshot.lines()) {
+                if (line.itemId == null) {
+                    line.itemId = itemIds.get(line.productId);
+                }
+                // A removal that was written and not undone since can be forgotten
+                if (line.isRemoved() && !line.dirty) {
+                    cart.lines.remove(line.productId, line);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Mark a cart's lines dirty again and journal their current state in the current
+     * segment, so the segments holding the original changes can be deleted. A cart the
+     * database keeps rejecting is quarantined instead: its unwritten lines are set aside
+     * and it is dropped from memory, so the next request reloads it from the database.
+     */
+    private void onWriteFailed(CartSnapshot snapshot, Exception cause) {
+        HotCart cart = snapshot.cart();
+        ReentrantLock lock = stripeFor(cart.userId);
+        lock.lock();
+        try {
+            snapshot.lines().forEach(line -> line.dirty = true);
+            cart.dirty = true;
+            List<CartJournal.Entry> unwritten = new ArrayList<>();
+            for (HotCart.Line line : cart.lines.values()) {
+                if (line.dirty) {
+                    unwritten.add(CartJournal.Entry.line(cart.userId, line.productId,
+                            line.quantity, line.unitPrice, line.version));
+                }
+            }
+            
+            // Retrying can not fix a constraint violation, e.g. a line for a product deleted since
+            if (cause instanceof DataIntegrityViolationException && ++cart.rejectedWrites >= maxRejectedWrites) {
+                journal.quarantine(unwritten);
+                carts.remove(cart.userId, cart);
+                quarantinedCarts.increment();
+                log.error("Quarantined {} unwritten lines of user {}'s cart after {} rejected writes: {}",
+                        unwritten.size(), cart.userId, cart.rejectedWrites, cause.getMessage());
+                return;
+            }
+            
+            log.error("Failed to write the cart of user {}, will retry: {}", cart.userId, cause.getMessage());
+            journal.append(unwritten);
+            dirtyUsers.add(cart.userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void evictIdleCarts() {
+        long idleSince = System.nanoTime() - idleTimeout.toNanos();
+        for (HotCart cart : carts.values()) {
+            if (cart.lastAccessedAt - idleSince < 0) {
+                ReentrantLock lock = stripeFor(cart.userId);
+                lock.lock();
+                try {
+                    if (!cart.dirty && cart.lastAccessedAt - idleSince < 0) {
+                        carts.remove(cart.userId, cart);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Run an action on a user's cart under its stripe lock, loading the cart on first use.
+     */
+    private <T> T withCart(Long userId, Function<HotCart, T> action) {
+        ReentrantLock lock = stripeFor(userId);
+        lock.lock();
+        try {
+            HotCart cart = carts.get(userId);
+            if (cart == null) {
+                cart = batchWriter.load(userId)
+                        .orElseThrow(() -> new IllegalStateException("No cart for user " + userId));
+                carts.put(userId, cart);
+            }
+            cart.lastAccessedAt = System.nanoTime();
+            return action.apply(cart);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Journal a line change, then apply it.
+     */
+    private void change(HotCart cart, Long productId, int quantity, BigDecimal unitPrice, long version) {
+        journal.append(CartJournal.Entry.line(cart.userId, productId, quantity, unitPrice, version));
+        cart.apply(productId, quantity, unitPrice, version);
+        dirtyUsers.add(cart.userId);
+    }
+    
+    private void replay(CartJournal.Entry entry) {
+        try {
+            withCart(entry.userId(), cart -> {
+                cart.apply(entry);
+                dirtyUsers.add(cart.userId);
+                return null;
+            });
+        } catch (IllegalStateException e) {
+            log.warn("Skipped cart journal entry for missing user {}", entry.userId());
+        }
+    }
+    
+    /**
+     * Reprice a cart's lines at the current product prices.
+     *
+     * @return true if any line's price changed
+     */
+    private boolean reprice(HotCart cart) {
+        List<CartJournal.Entry> entries = operationPlanner.reprice(cart);
+        if (entries.isEmpty()) {
+            return false;
+        }
+        journal.append(entries);
+        entries.forEach(cart::apply);
+        dirtyUsers.add(cart.userId);
+        return true;
+    }
+    
+    private ReentrantLock stripeFor(Long userId) {
+        return stripes[Long.hashCode(userId * 0x9E3779B97F4A7C15L) & (stripes.length - 1)];
+    }
+}
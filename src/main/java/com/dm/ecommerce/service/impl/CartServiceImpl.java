@@ -0,0 +1,137 @@
+package com.dm.ecommerce.service.impl;
+
+import com.dm.ecommerce.model.Cart;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.payload.CartOperation;
+import com.dm.ecommerce.repository.CartItemRepository;
+import com.dm.ecommerce.repository.CartRepository;
+import com.dm.ecommerce.service.CartService;
+import com.dm.ecommerce.service.ProductCatalogService;
+import com.dm.ecommerce.service.cart.CartBatchWriter;
+import com.dm.ecommerce.service.cart.CartOperationPlanner;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Implementation of the CartService interface that writes every change straight to the
+ * database; see {@link com.dm.ecommerce.service.cart.WriteBehindCartService} for the
+ * write-behind alternative. Each write updates the cart row first; its row lock serializes concurrent writes to the
+ * same cart, so the item statement that follows sees the state the total was adjusted for.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "false", matchIfMissing = true)
+public class CartServiceImpl implements CartService {
+    
+    @Autowired
+    private CartRepository cartRepository;
+    
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    
+    @Autowired
+    private ProductCatalogService productCatalogService;
+    
+    @Autowired
+    private CartOperationPlanner operationPlanner;
+    
+    @Autowired
+    private CartBatchWriter batchWriter;
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Cart getCart(Long userId) {
+        return cartRepository.findWithItemsByUserId(userId).orElseGet(Cart::new);
+    }
+    
+    @Override
+    @Transactional
+    public void addItem(Long userId, Long productId, int quantity) {
+        // Served from the catalog cache, so only the cart and item statements hit the database
+        Product product = productCatalogService.findProductById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found with id: " + productId));
+        BigDecimal price = product.currentPriceAt(LocalDateTime.now());
+        
+        if (cartRepository.addToTotal(userId, productId, quantity, price) == 0) {
+            // Users created before carts were have none yet
+            cartRepository.lockUser(userId);
+            cartRepository.createIfMissing(userId);
+            cartRepository.addToTotal(userId, productId, quantity, price);
+        }
+        cartItemRepository.upsertQuantity(userId, productId, quantity, price);
+    }
+    
+    @Override
+    @Transactional
+    public boolean updateItemQuantity(Long userId, Long itemId, int quantity, Long version) {
+        if (cartRepository.adjustTotalForItem(userId, itemId, quantity, version) == 0) {
+            return checkVersionConflict(userId, itemId, version);
+        }
+        cartItemRepository.updateQuantity(userId, itemId, quantity, version);
+        return true;
+    }
+    
+    @Override
+    @Transactional
+    public boolean removeItem(Long userId, Long itemId, Long version) {
+        if (cartRepository.adjustTotalForItem(userId, itemId, 0, version) == 0) {
+            return checkVersionConflict(userId, itemId, version);
+        }
+        cartItemRepository.deleteItem(userId, itemId, version);
+        return true;
+    }
+    
+    @Override
+    @Transactional
+    public void clearCart(Long userId) {
+        cartRepository.resetTotal(userId);
+        cartItemRepository.deleteAllByUserId(userId);
+    }
+    
+    @Override
+    public void applyOperations(Long userId, List<CartOperation> operations) {
+        Map<Long, BigDecimal> prices = operationPlanner.priceProducts(operations);
+        batchWriter.applyOperations(userId, operations, prices);
+    }
+    
+    @Override
+    @Transactional
+    public boolean repriceCart(Long userId) {
+        // Lock the cart before touching its items, in the same order as every other write
+        cartRepository.recalculateTotal(userId);
+        if (cartItemRepository.repriceItems(userId) == 0) {
+            return false;
+        }
+        cartRepository.recalculateTotal(userId);
+        return true;
+    }
+    
+    @Override
+    public <T> T checkout(Long userId, Function<Cart, T> placeOrder) {
+        return batchWriter.checkout(userId, placeOrder);
+    }
+    
+    @Override
+    public void flushCart(Long userId) {
+        // Every write already goes straight to the database
+    }
+    
+    /**
+     * Explain a write that matched no row: the item either is not in the cart, or was
+     * changed since the given version.
+     */
+    private boolean checkVersionConflict(Long userId, Long itemId, Long version) {
+        if (version != null && cartItemRepository.existsInCart(userId, itemId)) {
+            throw new OptimisticLockingFailureException("Cart item " + itemId + " was changed by another request");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package com.dm.ecommerce.service.impl;
+
+import com.dm.ecommerce.config.AuthMode;
+import com.dm.ecommerce.config.AuthModeState;
+import com.dm.ecommerce.service.AuthModeStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * File-backed authentication mode store.
+ * Updates take an exclusive file lock and replace the file atomically, so processes
+ * sharing the file never see a partial write or lose a version.
+ */
+public class FileAuthModeStore implements AuthModeStore {
+    
+    private static final String MODE = "mode";
+    private static final String VERSION = "version";
+    
+    private final Path path;
+    private final Path lockPath;
+    
+    public FileAuthModeStore(Path path) {
+        this.path = path.toAbsolutePath();
+        this.lockPath = this.path.resolveSibling(this.path.getFileName() + ".lock");
+    }
+    
+    @Override
+    public Optional<AuthModeState> load() {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(path)) {
+            properties.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read auth mode from " + path, e);
+        }
+        
+        return Optional.of(new AuthModeState(
+                AuthMode.valueOf(properties.getProperty(MODE)),
+                Long.parseLong(properties.getProperty(VERSION))));
+    }
+    
+    @Override
+    public synchronized AuthModeState update(AuthMode mode) {
+        try {
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return write(mode);
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write auth mode to " + path, e);
+        }
+    }
+    
+    // Called holding the file lock
+    private AuthModeState write(AuthMode mode) throws IOException {
+        long version = load().map(AuthModeState::version).orElse(0L) + 1;
+        AuthModeState state = new AuthModeState(mode, version);
+        
+        Properties properties = new Properties();
+        properties.setProperty(MODE, mode.name());
+        properties.setProperty(VERSION, String.valueOf(version));
+        
+        Path tempFile = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try (OutputStream output = Files.newOutputStream(tempFile)) {
+            properties.store(output, "Authentication mode");
+        }
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return state;
+    }
+}
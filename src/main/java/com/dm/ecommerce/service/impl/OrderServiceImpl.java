@@ -0,0 +1,176 @@
+package com.dm.ecommerce.service.impl;
+
+import com.dm.ecommerce.model.Address;
+import com.dm.ecommerce.model.CartItem;
+import com.dm.ecommerce.model.Order;
+import com.dm.ecommerce.model.OrderItem;
+import com.dm.ecommerce.model.PaymentInfo;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.payload.OrderItemRequest;
+import com.dm.ecommerce.repository.AddressRepository;
+import com.dm.ecommerce.repository.OrderRepository;
+import com.dm.ecommerce.service.CartService;
+import com.dm.ecommerce.service.OrderService;
+import com.dm.ecommerce.service.ProductCatalogService;
+import com.dm.ecommerce.service.order.OrderWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of the OrderService interface. Products come from the catalog cache in
+ * one lookup per order, so placing an order reads only the shipping address before the
+ * writes. Stock is checked and taken by {@link OrderWriter} when the order is written,
+ * and an order for more than is left fails without being placed.
+ */
+@Service
+public class OrderServiceImpl implements OrderService {
+    
+    private static final String PAYMENT_PENDING = "PENDING";
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private AddressRepository addressRepository;
+    
+    @Autowired
+    private ProductCatalogService productCatalogService;
+    
+    @Autowired
+    private CartService cartService;
+    
+    @Autowired
+    private OrderWriter orderWriter;
+    
+    @Override
+    public Order createOrder(Long userId, List<OrderItemRequest> items, Long shippingAddressId, String paymentMethod) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one item");
+        }
+        
+        // Ordering a product twice orders the sum
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItemRequest item : items) {
+            if (item == null || item.getProductId() == null) {
+                throw new IllegalArgumentException("Every item needs a product");
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be greater than zero");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        
+        Map<Long, Product> products = productCatalogService.findProductsByIds(new ArrayList<>(quantities.keySet()))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        
+        Order order = newOrder(userId, shippingAddressId, paymentMethod);
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new IllegalArgumentException("Product not found with id: " + entry.getKey());
+            }
+            order.addOrderItem(newItem(product, entry.getValue(), product.currentPriceAt(now)));
+        }
+        return place(order);
+    }
+    
+    @Override
+    public Order checkout(Long userId, Long shippingAddressId, String paymentMethod) {
+        // The cart stays locked until the order is placed and its items are removed, so a
+        // concurrent checkout finds the cart empty and items added meanwhile are kept
+        return cartService.checkout(userId, cart -> {
+            if (cart.getItems().isEmpty()) {
+                throw new IllegalArgumentException("Cart is empty");
+            }
+            
+            Order order = newOrder(userId, shippingAddressId, paymentMethod);
+            for (CartItem item : cart.getItems()) {
+                if (item.getProduct() == null) {
+                    throw new IllegalArgumentException("Cart item " + item.getId() + " is no longer available");
+                }
+                order.addOrderItem(newItem(item.getProduct(), item.getQuantity(), item.getUnitPrice()));
+            }
+            return place(order);
+        });
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Order> getOrderById(Long id) {
+        return orderRepository.findWithItemsById(id);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Order> getUserOrders(Long userId) {
+        return orderRepository.findWithItemsByUserId(userId);
+    }
+    
+    @Override
+    @Transactional
+    public Optional<Order> updateOrderStatus(Long id, Order.OrderStatus status) {
+        if (orderRepository.updateStatus(id, status.name()) == 0) {
+            return Optional.empty();
+        }
+        return orderRepository.findWithItemsById(id);
+    }
+    
+    private Order newOrder(Long userId, Long shippingAddressId, String paymentMethod) {
+        if (paymentMethod == null || paymentMethod.isBlank()) {
+            throw new IllegalArgumentException("A payment method is required");
+        }
+        Address address = Optional.ofNullable(shippingAddressId)
+                .flatMap(id -> addressRepository.findByIdAndUserId(id, userId))
+                .orElseThrow(() -> new IllegalArgumentException("Shipping address not found with id: " + shippingAddressId));
+        
+        Order order = new Order();
+        order.setUser(address.getUser());
+        order.setShippingAddress(address);
+        order.setStatus(Order.OrderStatus.PENDING.name());
+        
+        PaymentInfo payment = new PaymentInfo();
+        payment.setMethod(paymentMethod);
+        payment.setStatus(PAYMENT_PENDING);
+        payment.setOrder(order);
+        order.setPaymentInfo(payment);
+        return order;
+    }
+    
+    private OrderItem newItem(Product product, int quantity, BigDecimal price) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setPrice(price);
+        return item;
+    }
+    
+    /**
+     * Total the order once from its item prices, then insert it, taking its items out of
+     * stock. The cached products' stock follows once the order commits.
+     */
+    private Order place(Order order) {
+        order.calculateTotalAmount();
+        order.getPaymentInfo().setAmount(order.getTotalAmount());
+        orderWriter.insert(order);
+        
+        Map<Long, Integer> taken = new LinkedHashMap<>();
+        for (OrderItem item : order.getItems()) {
+            taken.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        productCatalogService.takeStockAfterCommit(taken);
+        return order;
+    }
+}
@@ -3,6 +3,9 @@ package com.dm.ecommerce.service.impl;
 import com.dm.ecommerce.model.Cart;
 import com.dm.ecommerce.model.User;
 import com.dm.ecommerce.repository.UserRepository;
+import com.dm.ecommerce.security.UserPrincipalService;
+import com.dm.ecommerce.security.session.SessionStore;
+import com.dm.ecommerce.service.RefreshTokenService;
 import com.dm.ecommerce.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -25,6 +28,15 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserPrincipalService userPrincipalService;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private SessionStore sessionStore;
+    
     @Override
     @Transactional
     public User registerUser(String username, String email, String password) {
@@ -89,11 +101,18 @@ public class UserServiceImpl implements UserService {
             throw new RuntimeException("Email is already in use");
         }
         
+        // Tokens issued under the old username must not be trusted from their claims, and
+        // stored sessions hold the user as it was at login
+        userPrincipalService.revoke(user.getId(), user.getUsername());
+        sessionStore.deleteByUserId(id);
+        
         user.setUsername(username);
         user.setEmail(email);
         
         if (password != null && !password.isEmpty()) {
             user.setPassword(passwordEncoder.encode(password));
+            // Sessions started with the old password must log in again
+            refreshTokenService.revokeAll(id);
         }
         
         return userRepository.save(user);
@@ -102,8 +121,12 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional
     public boolean deleteUser(Long id) {
-        if (userRepository.existsById(id)) {
-            userRepository.deleteById(id);
+        Optional<User> user = userRepository.findById(id);
+        if (user.isPresent()) {
+            userPrincipalService.revoke(id, user.get().getUsername());
+            refreshTokenService.revokeAll(id);
+            sessionStore.deleteByUserId(id);
+            userRepository.delete(user.get());
             return true;
         }
         return false;
@@ -0,0 +1,129 @@
+package com.dm.ecommerce.service.order;
+
+import com.dm.ecommerce.model.Order;
+import com.dm.ecommerce.model.OrderItem;
+import com.dm.ecommerce.model.PaymentInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inserts new orders over JDBC. Identity keys keep Hibernate from batching inserts, so
+ * an order with any number of items costs four statements here: the order, one batch for
+ * all its items, the payment, and one batch taking the items out of stock.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderWriter {
+    
+    // Takes stock only if enough is left; the row lock serializes concurrent orders
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - :quantity " +
+            "WHERE id = :productId AND stock_quantity >= :quantity";
+    
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (user_id, order_date, status, total_amount, shipping_address_id) " +
+            "VALUES (:userId, :orderDate, :status, :totalAmount, :shippingAddressId)";
+    
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, quantity, price) " +
+            "VALUES (:orderId, :productId, :quantity, :price)";
+    
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO payment_info (order_id, method, status, transaction_id, amount, timestamp) " +
+            "VALUES (:orderId, :method, :status, :transactionId, :amount, :timestamp)";
+    
+    private static final String[] ID_COLUMN = {"id"};
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Take the order's items out of stock and insert the order with its items and payment,
+     * all in one transaction, setting their generated IDs.
+     *
+     * @param order the order, with its user, shipping address, items and payment set
+     * @throws IllegalArgumentException if a product does not have enough stock left, in which
+     *                                  case nothing is written
+     */
+    @Transactional
+    public void insert(Order order) {
+        NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(jdbcTemplate);
+        
+        KeyHolder orderKey = new GeneratedKeyHolder();
+        template.update(INSERT_ORDER_SQL, new MapSqlParameterSource()
+                .addValue("userId", order.getUser().getId())
+                .addValue("orderDate", Timestamp.valueOf(order.getOrderDate()))
+                .addValue("status", order.getStatus())
+                .addValue("totalAmount", order.getTotalAmount())
+                .addValue("shippingAddressId", order.getShippingAddress().getId()), orderKey, ID_COLUMN);
+        order.setId(orderKey.getKey().longValue());
+        
+        List<OrderItem> items = order.getItems();
+        SqlParameterSource[] itemParams = new SqlParameterSource[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            itemParams[i] = new MapSqlParameterSource()
+                    .addValue("orderId", order.getId())
+                    .addValue("productId", item.getProduct().getId())
+                    .addValue("quantity", item.getQuantity())
+                    .addValue("price", item.getPrice());
+        }
+        KeyHolder itemKeys = new GeneratedKeyHolder();
+        template.batchUpdate(INSERT_ITEM_SQL, itemParams, itemKeys, ID_COLUMN);
+        List<Map<String, Object>> keys = itemKeys.getKeyList();
+        for (int i = 0; i < items.size(); i++) {
+            // Only the ID column is returned, under whatever case the driver reports
+            items.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+        
+        PaymentInfo payment = order.getPaymentInfo();
+        KeyHolder paymentKey = new GeneratedKeyHolder();
+        template.update(INSERT_PAYMENT_SQL, new MapSqlParameterSource()
+                .addValue("orderId", order.getId())
+                .addValue("method", payment.getMethod())
+                .addValue("status", payment.getStatus())
+                .addValue("transactionId", payment.getTransactionId())
+                .addValue("amount", payment.getAmount())
+                .addValue("timestamp", Timestamp.valueOf(payment.getTimestamp())), paymentKey, ID_COLUMN);
+        payment.setId(paymentKey.getKey().longValue());
+        
+        // Last, so the product rows every concurrent order needs stay locked only until commit
+        decrementStock(template, order.getItems());
+    }
+    
+    /**
+     * Take each product's ordered quantity out of stock in one batch, in product ID order
+     * so concurrent orders lock the rows in the same order.
+     */
+    private void decrementStock(NamedParameterJdbcTemplate template, List<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        
+        SqlParameterSource[] params = quantities.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("productId", entry.getKey())
+                        .addValue("quantity", entry.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        int[] updated = template.batchUpdate(DECREMENT_STOCK_SQL, params);
+        
+        int i = 0;
+        for (Long productId : quantities.keySet()) {
+            if (updated[i++] == 0) {
+                throw new IllegalArgumentException("Insufficient stock for product with id: " + productId);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.dm.ecommerce.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Wrapping re-encodes weak hashes to the current work factor without the password, and
+ * login turns a wrapped hash back into a plain current one.
+ */
+class PasswordHashVersionsTest {
+
+    private static final int LEGACY_STRENGTH = 4;
+    private static final int CURRENT_STRENGTH = 5;
+
+    private final DelegatingPasswordEncoder encoder = PasswordHashVersions.createEncoder(CURRENT_STRENGTH);
+
+    @Test
+    void wrappedLegacyHashMatchesOnlyTheOriginalPassword() {
+        String legacy = new BCryptPasswordEncoder(LEGACY_STRENGTH).encode("secret");
+
+        String wrapped = PasswordHashVersions.wrapWeakHash(legacy, CURRENT_STRENGTH);
+
+        assertThat(wrapped).startsWith("{bcrypt-wrapped}").doesNotContain(legacy);
+        assertThat(wrapped.substring(wrapped.indexOf('}') + 30)).startsWith("$2a$05$");
+        assertThat(encoder.matches("secret", wrapped)).isTrue();
+        assertThat(encoder.matches("Secret", wrapped)).isFalse();
+    }
+
+    @Test
+    void wrappedVersionedHashMatchesAndIsUnwrappedOnLogin() {
+        String versioned = "{bcrypt4}" + new BCryptPasswordEncoder(LEGACY_STRENGTH).encode("secret");
+
+        String wrapped = PasswordHashVersions.wrapWeakHash(versioned, CURRENT_STRENGTH);
+
+        assertThat(encoder.matches("secret", wrapped)).isTrue();
+        assertThat(encoder.upgradeEncoding(wrapped)).isTrue();
+        String upgraded = encoder.encode("secret");
+        assertThat(upgraded).startsWith("{bcrypt5}");
+        assertThat(encoder.upgradeEncoding(upgraded)).isFalse();
+    }
+
+    @Test
+    void hashesAtFullStrengthOrOfOtherKindsAreNotWrapped() {
+        String current = encoder.encode("secret");
+
+        assertThat(PasswordHashVersions.wrapWeakHash(current, CURRENT_STRENGTH)).isNull();
+        assertThat(PasswordHashVersions.wrapWeakHash(current.substring(current.indexOf('}') + 1), CURRENT_STRENGTH)).isNull();
+        assertThat(PasswordHashVersions.wrapWeakHash("{noop}secret", CURRENT_STRENGTH)).isNull();
+        assertThat(PasswordHashVersions.wrapWeakHash("plain", CURRENT_STRENGTH)).isNull();
+        String wrapped = PasswordHashVersions.wrapWeakHash(new BCryptPasswordEncoder(LEGACY_STRENGTH).encode("secret"), CURRENT_STRENGTH);
+        assertThat(PasswordHashVersions.wrapWeakHash(wrapped, CURRENT_STRENGTH)).isNull();
+    }
+
+    @Test
+    void malformedWrappedHashNeverMatches() {
+        assertThat(encoder.matches("secret", "{bcrypt-wrapped}short")).isFalse();
+        assertThat(encoder.matches("secret", "{bcrypt-wrapped}" + "x".repeat(89))).isFalse();
+    }
+}
@@ -0,0 +1,160 @@
+package com.dm.ecommerce.security;
+
+import com.dm.ecommerce.config.SecurityConfig;
+import com.dm.ecommerce.security.RouteTable.Access;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Route matching benchmark, skipped unless run with {@code -Dbenchmark=true}:
+ * <pre>
+ * mvn test -Dbenchmark=true -Dtest=RouteTableBenchmark
+ * </pre>
+ * Times classifying a mix of requests the way the two security chains used to, the static
+ * chain's matchers and then the main chain's matchers in order, against the route table
+ * from {@link SecurityConfig#routeTable()} consulted for the ignored, public and admin
+ * matchers. The old MVC matchers are modelled as Ant matchers, which are cheaper, so the
+ * old path's cost is understated. Fails if any request gets a different decision or the
+ * route table is not faster.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RouteTableBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int ROUNDS = Integer.getInteger("benchmark.routes.rounds", 2_000_000);
+
+    private enum Decision {
+        PERMIT,
+        ADMIN,
+        AUTHENTICATED
+    }
+
+    // The old static-resource chain, which permitted everything it matched
+    private static final RequestMatcher STATIC_CHAIN = new OrRequestMatcher(
+            ant("/"), ant("/index.html"), ant("/css/**"), ant("/js/**"), ant("/images/**"),
+            ant("/favicon.ico"), ant("/error"), ant("/h2-console/**"), ant("/emergency"), ant("/direct-index"));
+
+    // The old main chain's rules, in order; anything else required authentication
+    private static final Map<RequestMatcher, Decision> MAIN_CHAIN = new LinkedHashMap<>();
+
+    static {
+        for (String pattern : List.of("/", "/index.html", "/css/**", "/js/**", "/images/**", "/favicon.ico",
+                "/static/**", "/error", "/swagger-ui/**", "/v3/api-docs/**", "/swagger-resources/**",
+                "/api/auth/**", "/graphql", "/graphiql/**", "/h2-console/**")) {
+            MAIN_CHAIN.put(ant(pattern), Decision.PERMIT);
+        }
+        MAIN_CHAIN.put(new AntPathRequestMatcher("/api/products/**", HttpMethod.GET.name()), Decision.PERMIT);
+        MAIN_CHAIN.put(new AntPathRequestMatcher("/api/categories/**", HttpMethod.GET.name()), Decision.PERMIT);
+        MAIN_CHAIN.put(ant("/api/admin/**"), Decision.ADMIN);
+    }
+
+    private static final List<MockHttpServletRequest> REQUESTS = List.of(
+            request("GET", "/api/products/42"),
+            request("GET", "/api/categories"),
+            request("POST", "/graphql"),
+            request("POST", "/api/auth/login"),
+            request("GET", "/api/cart"),
+            request("POST", "/api/cart/items"),
+            request("GET", "/api/orders/17"),
+            request("POST", "/api/products"),
+            request("GET", "/api/admin/users/3"),
+            request("GET", "/js/app.js"),
+            request("GET", "/"),
+            request("GET", "/graphiql/index.html"));
+
+    @Test
+    void routeTableIsFasterAndDecidesAlike() {
+        RouteTable routeTable = new SecurityConfig().routeTable();
+        RequestMatcher ignoredMatcher = routeTable.matcher(Access.IGNORED);
+        RequestMatcher publicMatcher = routeTable.matcher(Access.PUBLIC);
+        RequestMatcher adminMatcher = routeTable.matcher(Access.ADMIN);
+        Function<MockHttpServletRequest, Decision> routeTableDecision = request -> {
+            if (ignoredMatcher.matches(request) || publicMatcher.matches(request)) {
+                return Decision.PERMIT;
+            }
+            return adminMatcher.matches(request) ? Decision.ADMIN : Decision.AUTHENTICATED;
+        };
+
+        for (MockHttpServletRequest request : REQUESTS) {
+            Decision before = chainDecision(request);
+            assertThat(routeTableDecision.apply(request))
+                    .as("%s %s", request.getMethod(), request.getRequestURI())
+                    .isEqualTo(before);
+            request.clearAttributes();
+        }
+
+        double before = measure("two chains, matchers in order", RouteTableBenchmark::chainDecision);
+        double after = measure("route table", routeTableDecision);
+        System.out.printf("route table %.1fx the old chains%n", after / before);
+        assertThat(after).isGreaterThan(before);
+    }
+
+    private static Decision chainDecision(MockHttpServletRequest request) {
+        if (STATIC_CHAIN.matches(request)) {
+            return Decision.PERMIT;
+        }
+        for (Map.Entry<RequestMatcher, Decision> rule : MAIN_CHAIN.entrySet()) {
+            if (rule.getKey().matches(request)) {
+                return rule.getValue();
+            }
+        }
+        return Decision.AUTHENTICATED;
+    }
+
+    /**
+     * Classify the request mix for warmup rounds, then time classifying it.
+     * Each request starts without attributes, as a new request would.
+     *
+     * @return requests classified per second
+     */
+    private static double measure(String name, Function<MockHttpServletRequest, Decision> decide) {
+        run(WARMUP_ROUNDS, decide);
+
+        long start = System.nanoTime();
+        int authenticated = run(ROUNDS, decide);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = ROUNDS / seconds;
+        System.out.printf("%s: %d requests (%d needing a user) in %.2f s, %.0f requests/s%n",
+                name, ROUNDS, authenticated, seconds, rate);
+        return rate;
+    }
+
+    /**
+     * Classify requests from the mix, round-robin.
+     *
+     * @return how many requests needed an authenticated user
+     */
+    private static int run(int rounds, Function<MockHttpServletRequest, Decision> decide) {
+        int authenticated = 0;
+        for (int i = 0; i < rounds; i++) {
+            MockHttpServletRequest request = REQUESTS.get(i % REQUESTS.size());
+            request.clearAttributes();
+            if (decide.apply(request) == Decision.AUTHENTICATED) {
+                authenticated++;
+            }
+        }
+        return authenticated;
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    private static AntPathRequestMatcher ant(String pattern) {
+        return new AntPathRequestMatcher(pattern);
+    }
+}
@@ -0,0 +1,96 @@
+package com.dm.ecommerce.security;
+
+import com.dm.ecommerce.config.SecurityConfig;
+import com.dm.ecommerce.security.RouteTable.Access;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteTableTest {
+
+    private final RouteTable routeTable = new SecurityConfig().routeTable();
+
+    @Test
+    void encodedSegmentsResolveLikeTheirDecodedPath() {
+        assertThat(resolve("GET", "/api/%61dmin/users")).isEqualTo(Access.ADMIN);
+        assertThat(resolve("DELETE", "/api/%61%64%6D%69%6E/users/3")).isEqualTo(Access.ADMIN);
+        assertThat(resolve("POST", "/api/auth/logi%6E")).isEqualTo(Access.PUBLIC);
+        assertThat(resolve("GET", "/api/product%73/42")).isEqualTo(Access.IGNORED);
+        assertThat(resolve("GET", "/api/cart%2Fitems")).isEqualTo(Access.AUTHENTICATED);
+    }
+
+    @Test
+    void contextPathAndPathParametersAreNotPartOfTheRoute() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/shop/api/admin/users");
+        request.setContextPath("/shop");
+        assertThat(routeTable.resolve(request)).isEqualTo(Access.ADMIN);
+
+        assertThat(resolve("GET", "/api/admin;jsessionid=abc/users")).isEqualTo(Access.ADMIN);
+    }
+
+    @Test
+    void trailingSlashMatchesPrefixRoutesButNotExactRoutes() {
+        assertThat(resolve("GET", "/api/admin/")).isEqualTo(Access.ADMIN);
+        assertThat(resolve("POST", "/api/auth/")).isEqualTo(Access.PUBLIC);
+        assertThat(resolve("GET", "/favicon.ico/")).isEqualTo(Access.AUTHENTICATED);
+        assertThat(resolve("POST", "/graphql/")).isEqualTo(Access.AUTHENTICATED);
+        assertThat(resolve("GET", "/")).isEqualTo(Access.IGNORED);
+    }
+
+    @Test
+    void exactRoutesDoNotMatchLongerPaths() {
+        assertThat(resolve("POST", "/graphql")).isEqualTo(Access.PUBLIC);
+        assertThat(resolve("POST", "/graphql/schema")).isEqualTo(Access.AUTHENTICATED);
+        assertThat(resolve("GET", "/favicon.ico")).isEqualTo(Access.IGNORED);
+        assertThat(resolve("GET", "/favicon.ico/x")).isEqualTo(Access.AUTHENTICATED);
+        assertThat(resolve("GET", "/graphqlx")).isEqualTo(Access.AUTHENTICATED);
+    }
+
+    @Test
+    void prefixRoutesMatchTheirOwnPathAndEverythingBelowIt() {
+        assertThat(resolve("GET", "/api/admin")).isEqualTo(Access.ADMIN);
+        assertThat(resolve("GET", "/api/admin/users/3/roles")).isEqualTo(Access.ADMIN);
+        assertThat(resolve("GET", "/api/administrators")).isEqualTo(Access.AUTHENTICATED);
+        assertThat(resolve("GET", "/css/site/main.css")).isEqualTo(Access.IGNORED);
+    }
+
+    @Test
+    void methodRoutesOnlyMatchTheirMethod() {
+        assertThat(resolve("GET", "/api/products/42")).isEqualTo(Access.IGNORED);
+        assertThat(resolve("POST", "/api/products")).isEqualTo(Access.AUTHENTICATED);
+        assertThat(resolve("DELETE", "/api/categories/7")).isEqualTo(Access.AUTHENTICATED);
+    }
+
+    @Test
+    void longestMatchingRouteWins() {
+        RouteTable table = new RouteTable()
+                .route("/api/**", Access.PUBLIC)
+                .route("/api/admin/**", Access.ADMIN)
+                .route("/api/admin/health", Access.PUBLIC)
+                .route(HttpMethod.GET, "/api/admin/reports/**", Access.PUBLIC);
+
+        assertThat(table.resolve("GET", "/api/cart")).isEqualTo(Access.PUBLIC);
+        assertThat(table.resolve("GET", "/api/admin/users")).isEqualTo(Access.ADMIN);
+        assertThat(table.resolve("GET", "/api/admin/health")).isEqualTo(Access.PUBLIC);
+        assertThat(table.resolve("GET", "/api/admin/health/details")).isEqualTo(Access.ADMIN);
+        assertThat(table.resolve("GET", "/api/admin/reports/daily")).isEqualTo(Access.PUBLIC);
+        assertThat(table.resolve("POST", "/api/admin/reports/daily")).isEqualTo(Access.ADMIN);
+        assertThat(table.resolve("GET", "/other")).isEqualTo(Access.AUTHENTICATED);
+    }
+
+    @Test
+    void resolvedAccessIsCachedOnTheRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/users");
+        assertThat(routeTable.resolve(request)).isEqualTo(Access.ADMIN);
+
+        request.setRequestURI("/api/products/1");
+        assertThat(routeTable.resolve(request)).isEqualTo(Access.ADMIN);
+        assertThat(routeTable.matcher(Access.ADMIN).matches(request)).isTrue();
+    }
+
+    private Access resolve(String method, String uri) {
+        return routeTable.resolve(new MockHttpServletRequest(method, uri));
+    }
+}
@@ -0,0 +1,124 @@
+package com.dm.ecommerce.security.jwt;
+
+import com.dm.ecommerce.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Token verification benchmark, skipped unless run with {@code -Dbenchmark=true}:
+ * <pre>
+ * mvn test -Dbenchmark=true -Dtest=JwtUtilsBenchmark
+ * </pre>
+ * Times authenticating requests the way the filter used to, deriving the key and building
+ * a parser for validateJwtToken and again for getUsernameFromJwtToken, against one
+ * {@link JwtUtils#parseJwtToken} call, for tokens seen for the first time and for a token
+ * seen again. Fails unless the single parse is faster than the old path.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JwtUtilsBenchmark {
+
+    private static final String SECRET = "benchmarkSecretKeyThatIsAtLeast256BitsLongForHS256Signatures";
+    private static final int WARMUP_TOKENS = 20_000;
+    private static final int TOKENS = Integer.getInteger("benchmark.jwt.tokens", 50_000);
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void createJwtUtils() {
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(verifiedTokenCache, "maxSize", 10_000L);
+        ReflectionTestUtils.setField(verifiedTokenCache, "meterRegistry", new SimpleMeterRegistry());
+        verifiedTokenCache.init();
+
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "primary");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 900_000);
+        ReflectionTestUtils.setField(jwtUtils, "environment", new MockEnvironment());
+        ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCache", verifiedTokenCache);
+        jwtUtils.init();
+    }
+
+    @Test
+    void singleParseIsFasterThanValidateThenParse() {
+        double before = measure("validate + getUsername, key and parser per call", tokens(TOKENS),
+                JwtUtilsBenchmark::validateThenGetUsername);
+        double firstSight = measure("parseJwtToken, first sight", tokens(TOKENS),
+                token -> jwtUtils.parseJwtToken(token).orElseThrow().getSubject());
+
+        List<String> sameToken = new ArrayList<>(tokens(1));
+        while (sameToken.size() < TOKENS) {
+            sameToken.add(sameToken.get(0));
+        }
+        double seenAgain = measure("parseJwtToken, seen again", sameToken,
+                token -> jwtUtils.parseJwtToken(token).orElseThrow().getSubject());
+
+        System.out.printf("first sight %.1fx, seen again %.1fx the old path%n",
+                firstSight / before, seenAgain / before);
+        assertThat(firstSight).isGreaterThan(before);
+        assertThat(seenAgain).isGreaterThan(firstSight);
+    }
+
+    /**
+     * The filter's old path: validate the token, then parse it again for the username,
+     * deriving the key and building a parser each time.
+     */
+    private static String validateThenGetUsername(String token) {
+        Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token);
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+
+    /**
+     * Run the verification over warmup tokens, then time it over the given tokens.
+     *
+     * @return tokens verified per second
+     */
+    private double measure(String name, List<String> tokens, Function<String, String> verify) {
+        for (String token : tokens(WARMUP_TOKENS)) {
+            assertThat(verify.apply(token)).isNotNull();
+        }
+
+        long start = System.nanoTime();
+        for (String token : tokens) {
+            assertThat(verify.apply(token)).isNotNull();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = tokens.size() / seconds;
+        System.out.printf("%s: %d tokens in %.2f s, %.0f tokens/s%n", name, tokens.size(), seconds, rate);
+        return rate;
+    }
+
+    private List<String> tokens(int count) {
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setUsername("user" + i + "-" + System.nanoTime());
+            user.setRoles(Set.of(User.Role.USER));
+            tokens.add(jwtUtils.generateJwtToken(user));
+        }
+        return tokens;
+    }
+}
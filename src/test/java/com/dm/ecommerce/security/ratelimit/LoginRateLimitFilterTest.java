@@ -0,0 +1,61 @@
+package com.dm.ecommerce.security.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Login throttling through the full filter chain, with the default limit of five
+ * attempts per username per minute on {@code /api/auth/login}.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+@AutoConfigureMockMvc
+class LoginRateLimitFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void encodedLoginPathSharesTheLoginLimit() throws Exception {
+        String username = "encoded-path-user";
+        for (int i = 0; i < 5; i++) {
+            String path = i % 2 == 0 ? "/api/auth/logi%6E" : "/api/auth/login";
+            login(path, username).andExpect(result ->
+                    assertThat(result.getResponse().getStatus()).isNotEqualTo(429));
+        }
+
+        login("/api/auth/logi%6E", username)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        login("/api/auth/%6C%6F%67%69%6E", username).andExpect(status().isTooManyRequests());
+        login("/api/auth/login", username).andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void otherUsernamesAreNotThrottled() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            login("/api/auth/logi%6E", "encoded-path-user-" + i).andExpect(result ->
+                    assertThat(result.getResponse().getStatus()).isNotEqualTo(429));
+        }
+    }
+
+    private ResultActions login(String path, String username) throws Exception {
+        return mockMvc.perform(post(URI.create(path))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"wrong-password\"}"));
+    }
+}
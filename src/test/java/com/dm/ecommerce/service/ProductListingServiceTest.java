@@ -0,0 +1,121 @@
+package com.dm.ecommerce.service;
+
+import com.dm.ecommerce.model.Category;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.repository.CategoryRepository;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.service.ProductListingService.ProductSlice;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Keyset and offset paging over a category of products whose prices, names and ratings
+ * tie, so every page boundary depends on the ID tie-break.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN"
+})
+class ProductListingServiceTest {
+
+    private static final String[] NAMES = {"Lamp", "Lamp", "Desk", "Lamp", "Chair", "Desk", "Chair", "Lamp", "Desk"};
+    private static final String[] PRICES = {"5.00", "7.50", "5.00", "5.00", "9.00", "7.50", "9.00", "5.00", "7.50"};
+    private static final double[] RATINGS = {4.5, 3.0, 4.5, 0.0, 3.0, 4.5, 0.0, 3.0, 4.5};
+
+    @Autowired
+    private ProductListingService productListingService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Map<String, Object> filter;
+    private List<Product> products;
+
+    @BeforeEach
+    void createProducts() {
+        Category category = new Category();
+        category.setName("Listing test " + System.nanoTime());
+        category = categoryRepository.save(category);
+        filter = Map.of("categoryIds", List.of(String.valueOf(category.getId())));
+
+        for (int i = 0; i < NAMES.length; i++) {
+            Product product = new Product();
+            product.setName(NAMES[i]);
+            product.setPrice(new BigDecimal(PRICES[i]));
+            product.setStockQuantity(1);
+            product.setCategory(category);
+            product = productRepository.save(product);
+            // Rating aggregates are never written through the entity
+            jdbcTemplate.update("UPDATE products SET average_rating = ? WHERE id = ?", RATINGS[i], product.getId());
+        }
+        products = productRepository.findByCategoryId(category.getId());
+    }
+
+    @Test
+    void keysetPagesFollowTheSortInBothDirections() {
+        assertPagesInOrder("price", Product::getPrice);
+        assertPagesInOrder("name", Product::getName);
+        assertPagesInOrder("rating", Product::getAverageRating);
+        assertPagesInOrder("id", Product::getId);
+    }
+
+    @Test
+    void offsetPagesBreakTiesInTheSortDirection() {
+        for (String direction : List.of("ASC", "DESC")) {
+            Map<String, String> sort = Map.of("field", "price", "direction", direction);
+            List<Long> ids = productListingService.findFilteredProducts(filter, sort, 0, NAMES.length)
+                    .map(Product::getId).getContent();
+            assertThat(ids).as("price %s", direction).isEqualTo(expectedIds(Product::getPrice, direction));
+        }
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> productListingService.findProductsAfter(filter, null, "not-a-cursor", 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid cursor");
+    }
+
+    private <T extends Comparable<? super T>> void assertPagesInOrder(String field, Function<Product, T> key) {
+        for (String direction : List.of("ASC", "DESC")) {
+            Map<String, String> sort = Map.of("field", field, "direction", direction);
+            List<Long> paged = new ArrayList<>();
+            String after = null;
+            ProductSlice slice;
+            do {
+                slice = productListingService.findProductsAfter(filter, sort, after, 2);
+                slice.products().forEach(product -> paged.add(product.getId()));
+                after = slice.endCursor();
+            } while (slice.hasNext());
+
+            assertThat(paged).as("%s %s", field, direction).isEqualTo(expectedIds(key, direction));
+        }
+    }
+
+    private <T extends Comparable<? super T>> List<Long> expectedIds(Function<Product, T> key, String direction) {
+        Comparator<Product> order = Comparator.comparing(key).thenComparing(Product::getId);
+        if ("DESC".equals(direction)) {
+            order = order.reversed();
+        }
+        return products.stream().sorted(order).map(Product::getId).toList();
+    }
+}
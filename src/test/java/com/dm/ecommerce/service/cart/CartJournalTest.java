@@ -0,0 +1,296 @@
+package com.dm.ecommerce.service.cart;
+
+import com.dm.ecommerce.service.cart.CartJournal.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedEntriesAreReplayedInOrder() {
+        List<Entry> appended = List.of(line(1, 10, 2), Entry.clear(2), line(1, 11, 1));
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            journal.append(appended.get(0));
+            journal.append(appended.subList(1, 3));
+        }
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactlyElementsOf(appended);
+        }
+    }
+
+    @Test
+    void recordTruncatedMidWriteIsDroppedOnReplay() throws IOException {
+        List<Long> ends = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(line(1, 10 + i, i + 1));
+                ends.add(Files.size(onlySegment()));
+            }
+        }
+
+        // Cut the last record inside its payload, as a crash mid-write would
+        truncate(onlySegment(), ends.get(1) + 7);
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 10, 1), line(1, 11, 2));
+            journal.append(line(1, 12, 5));
+        }
+
+        // The torn tail stays in its segment; later segments still replay after it
+        replayed.clear();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 10, 1), line(1, 11, 2), line(1, 12, 5));
+        }
+    }
+
+    @Test
+    void recordTruncatedInsideItsLengthIsDroppedOnReplay() throws IOException {
+        long firstEnd;
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            journal.append(line(1, 10, 1));
+            firstEnd = Files.size(onlySegment());
+            journal.append(line(1, 11, 2));
+        }
+
+        truncate(onlySegment(), firstEnd + 2);
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 10, 1));
+        }
+    }
+
+    @Test
+    void recordFailingItsCrcEndsReplayOfTheSegment() throws IOException {
+        long firstEnd;
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            journal.append(line(1, 10, 1));
+            firstEnd = Files.size(onlySegment());
+            journal.append(line(1, 11, 2));
+            journal.append(line(1, 12, 3));
+        }
+
+        // Flip a byte in the second record's payload, just past its length
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[(int) firstEnd + 5] ^= 0x40;
+        Files.write(segment, bytes);
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 10, 1));
+        }
+    }
+
+    @Test
+    void recordWithAnImpossibleLengthEndsReplayOfTheSegment() throws IOException {
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            journal.append(line(1, 10, 1));
+        }
+        Files.write(onlySegment(), new byte[]{0x7f, 0, 0, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 10, 1));
+        }
+    }
+
+    @Test
+    void tornBatchIsReplayedNotAtAll() throws IOException {
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            journal.append(line(1, 10, 1));
+            journal.append(List.of(line(2, 20, 1), line(2, 21, 1), Entry.clear(3)));
+        }
+
+        truncate(onlySegment(), Files.size(onlySegment()) - 3);
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 10, 1));
+        }
+    }
+
+    @Test
+    void deleteThroughDropsOnlySegmentsUpToTheRotation() throws IOException {
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            journal.append(line(1, 10, 1));
+            long flushed = journal.rotate();
+            journal.append(line(1, 11, 2));
+            long current = journal.rotate();
+            journal.append(line(1, 12, 3));
+
+            journal.deleteThrough(flushed);
+            assertThat(segments()).hasSize(2);
+            assertThat(current).isGreaterThan(flushed);
+        }
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 11, 2), line(1, 12, 3));
+        }
+    }
+
+    @Test
+    void rotatingWhileAppendsAreInFlightKeepsEveryAppendOnTheRightSide() throws Exception {
+        int appenders = 8;
+        int appendsEach = 300;
+        Set<Entry> doneBeforeRotate = ConcurrentHashMap.newKeySet();
+        Set<Entry> startedAfterRotate = ConcurrentHashMap.newKeySet();
+        Set<Entry> done = ConcurrentHashMap.newKeySet();
+        AtomicBoolean rotated = new AtomicBoolean();
+        CountDownLatch halfway = new CountDownLatch(appenders);
+
+        try (CartJournal journal = open(directory, true, new ArrayList<>());
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int a = 0; a < appenders; a++) {
+                long userId = a;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < appendsEach; i++) {
+                        Entry entry = line(userId, i, 1);
+                        boolean after = rotated.get();
+                        journal.append(entry);
+                        done.add(entry);
+                        if (after) {
+                            startedAfterRotate.add(entry);
+                        }
+                        if (i == appendsEach / 2) {
+                            halfway.countDown();
+                        }
+                    }
+                }));
+            }
+
+            // Rotate a few times while appends continue, then flush everything before the last rotation
+            halfway.await();
+            journal.rotate();
+            journal.rotate();
+            doneBeforeRotate.addAll(done);
+            long flushed = journal.rotate();
+            rotated.set(true);
+            for (Future<?> result : results) {
+                result.get();
+            }
+            journal.deleteThrough(flushed);
+        }
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).doesNotHaveDuplicates();
+            assertThat(replayed).doesNotContainAnyElementsOf(doneBeforeRotate);
+            assertThat(replayed).containsAll(startedAfterRotate);
+            assertThat(doneBeforeRotate.size() + replayed.size()).isLessThanOrEqualTo(appenders * appendsEach);
+            assertThat(startedAfterRotate).isNotEmpty();
+        }
+    }
+
+    @Test
+    void concurrentSynchronousAppendsAreAllForcedAndReplayed() throws Exception {
+        int appends = 500;
+        try (CartJournal journal = open(directory, true, new ArrayList<>());
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < appends; i++) {
+                long userId = i;
+                results.add(executor.submit(() -> journal.append(line(userId, 1, 1))));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            assertThat(ReflectionTestUtils.getField(journal, "synced"))
+                    .isEqualTo(ReflectionTestUtils.getField(journal, "written"))
+                    .isEqualTo((long) appends);
+        }
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).hasSize(appends);
+        }
+    }
+
+    @Test
+    void quarantinedEntriesAreKeptButNeverReplayed(@TempDir Path inspection) throws IOException {
+        List<Entry> rejected = List.of(line(4, 40, 1), line(4, 41, 2));
+        try (CartJournal journal = open(directory, false, new ArrayList<>())) {
+            journal.append(line(1, 10, 1));
+            journal.quarantine(rejected);
+        }
+
+        List<Entry> replayed = new ArrayList<>();
+        try (CartJournal journal = open(directory, false, replayed)) {
+            assertThat(replayed).containsExactly(line(1, 10, 1));
+        }
+
+        // The quarantine file uses the segment format, so it can be read back as one
+        Files.copy(directory.resolve("cart-quarantine.log"),
+                inspection.resolve("cart-journal-" + String.format("%019d", 1) + ".log"));
+        List<Entry> quarantined = new ArrayList<>();
+        try (CartJournal journal = open(inspection, false, quarantined)) {
+            assertThat(quarantined).containsExactlyElementsOf(rejected);
+        }
+    }
+
+    private static CartJournal open(Path directory, boolean sync, List<Entry> replayed) {
+        CartJournal journal = new CartJournal(directory, sync);
+        journal.open(replayed::add);
+        return journal;
+    }
+
+    private static Entry line(long userId, long productId, int quantity) {
+        return Entry.line(userId, productId, quantity, new BigDecimal("9.99"), quantity);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("cart-journal-"))
+                    .filter(file -> {
+                        try {
+                            return Files.size(file) > 0;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertThat(segments).hasSize(1);
+        return segments.get(0);
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.dm.ecommerce.service.impl;
+
+import com.dm.ecommerce.model.Order;
+import com.dm.ecommerce.payload.OrderItemRequest;
+import com.dm.ecommerce.service.CartService;
+import com.dm.ecommerce.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Order placement load test, skipped unless run with {@code -Dbenchmark=true}:
+ * <pre>
+ * mvn test -Dbenchmark=true -Dtest=OrderLoadBenchmark
+ * </pre>
+ * Places orders for seeded users from a fixed number of concurrent callers, once through
+ * createOrder with three items per order and once by checking out two-item carts, and fails
+ * if either places fewer than {@code benchmark.orders.min-rate} orders per second (default
+ * 600). Every order takes stock from the same three products, so orders serialize on those
+ * rows; this is the worst case for stock contention. Add
+ * {@code -Dcart.write-behind.enabled=true} to check out through the write-behind cart tier.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.com.dm.ecommerce=INFO",
+        "cart.write-behind.journal-path=${java.io.tmpdir}/ecommerce-benchmark/cart-journal"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderLoadBenchmark {
+
+    private static final int WARMUP_ORDERS = 1_000;
+    private static final int ORDERS = Integer.getInteger("benchmark.orders.count", 10_000);
+    private static final int CALLERS = Integer.getInteger("benchmark.orders.callers", 32);
+    private static final int MIN_RATE = Integer.getInteger("benchmark.orders.min-rate", 600);
+
+    // Seeded users are named <prefix>-<n>; every test run gets its own prefixes
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> productIds;
+
+    @BeforeEach
+    void loadProducts() {
+        productIds = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 3", Long.class);
+        // Every order takes its items out of stock; keep enough for all of them
+        jdbcTemplate.update("UPDATE products SET stock_quantity = ? WHERE id IN (" +
+                String.join(",", productIds.stream().map(String::valueOf).toList()) + ")", Integer.MAX_VALUE);
+    }
+
+    @Test
+    void createOrderHoldsTheTargetRate() throws Exception {
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            OrderItemRequest item = new OrderItemRequest();
+            item.setProductId(productIds.get(i));
+            item.setQuantity(i + 1);
+            items.add(item);
+        }
+
+        double rate = measure("createOrder", seedUsers(WARMUP_ORDERS), seedUsers(ORDERS),
+                (userId, addressId) -> orderService.createOrder(userId, items, addressId, "CARD"));
+        assertThat(rate).isGreaterThanOrEqualTo(MIN_RATE);
+    }
+
+    @Test
+    void checkoutHoldsTheTargetRate() throws Exception {
+        Map<Long, Long> warmup = fillCarts(seedUsers(WARMUP_ORDERS));
+        Map<Long, Long> measured = fillCarts(seedUsers(ORDERS));
+
+        double rate = measure("checkout", warmup, measured,
+                (userId, addressId) -> orderService.checkout(userId, addressId, "CARD"));
+        assertThat(measured.keySet()).allSatisfy(userId ->
+                assertThat(cartService.getCart(userId).getItems()).isEmpty());
+        assertThat(rate).isGreaterThanOrEqualTo(MIN_RATE);
+    }
+
+    private interface OrderPlacement {
+        Order place(Long userId, Long addressId);
+    }
+
+    /**
+     * Place one order for each warmup user, then time placing one for each measured user.
+     *
+     * @return orders placed per second
+     */
+    private double measure(String name, Map<Long, Long> warmup, Map<Long, Long> measured,
+                           OrderPlacement placement) throws Exception {
+        placeOrders(warmup, placement);
+
+        long start = System.nanoTime();
+        placeOrders(measured, placement);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = measured.size() / seconds;
+        System.out.printf("%s: %d orders from %d callers in %.2f s, %.0f orders/s%n",
+                name, measured.size(), CALLERS, seconds, rate);
+
+        Integer placed = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id IN (" +
+                String.join(",", measured.keySet().stream().map(String::valueOf).toList()) + ")", Integer.class);
+        assertThat(placed).isEqualTo(measured.size());
+        return rate;
+    }
+
+    private void placeOrders(Map<Long, Long> addresses, OrderPlacement placement) throws Exception {
+        run(addresses.entrySet().stream().<Runnable>map(user ->
+                () -> placement.place(user.getKey(), user.getValue())).toList());
+    }
+
+    /**
+     * Create users, each with one address.
+     *
+     * @return user ID -> address ID
+     */
+    private Map<Long, Long> seedUsers(int count) {
+        String prefix = "load" + RUNS.incrementAndGet();
+        List<Object[]> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new Object[]{prefix + "-" + i, prefix + "-" + i + "@example.com", "{noop}unused"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, email, password) VALUES (?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO addresses (user_id, street, city, state, zip_code, country, is_default) " +
+                "SELECT id, '1 Main St', 'Springfield', 'IL', '62701', 'US', TRUE FROM users WHERE username LIKE ?",
+                prefix + "-%");
+
+        Map<Long, Long> addresses = new HashMap<>();
+        jdbcTemplate.query("SELECT a.user_id, a.id FROM addresses a JOIN users u ON u.id = a.user_id " +
+                        "WHERE u.username LIKE ?",
+                rs -> {
+                    addresses.put(rs.getLong("user_id"), rs.getLong("id"));
+                }, prefix + "-%");
+        return addresses;
+    }
+
+    private Map<Long, Long> fillCarts(Map<Long, Long> addresses) throws Exception {
+        run(addresses.keySet().stream().<Runnable>map(userId -> () -> {
+            cartService.addItem(userId, productIds.get(0), 1);
+            cartService.addItem(userId, productIds.get(1), 2);
+        }).toList());
+        return addresses;
+    }
+
+    private static void run(List<Runnable> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS, Thread.ofVirtual().factory());
+        try {
+            List<Future<?>> results = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks) {
+                results.add(executor.submit(task));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.dm.ecommerce.service.impl;
+
+import com.dm.ecommerce.model.Order;
+import com.dm.ecommerce.model.Product;
+import com.dm.ecommerce.payload.OrderItemRequest;
+import com.dm.ecommerce.repository.ProductRepository;
+import com.dm.ecommerce.service.CartService;
+import com.dm.ecommerce.service.OrderService;
+import com.dm.ecommerce.service.ProductCatalogService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN"})
+class OrderServiceImplTest {
+
+    private static final int CALLERS = 16;
+
+    // Seeded users are named <prefix>-<n>; every seeding gets its own prefix
+    private static final AtomicInteger SEEDS = new AtomicInteger();
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductCatalogService productCatalogService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createOrderTakesItemsOutOfStock() {
+        Map.Entry<Long, Long> user = seedUsers(1).entrySet().iterator().next();
+        Long productId = newProduct(10);
+
+        orderService.createOrder(user.getKey(), List.of(item(productId, 3), item(productId, 2)),
+                user.getValue(), "CARD");
+
+        assertThat(stockOf(productId)).isEqualTo(5);
+        assertThat(productCatalogService.findProductById(productId).orElseThrow().getStockQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void orderForMoreThanIsLeftFailsWithoutWritingAnything() {
+        Map.Entry<Long, Long> user = seedUsers(1).entrySet().iterator().next();
+        Long plenty = newProduct(5);
+        Long scarce = newProduct(1);
+
+        assertThatThrownBy(() -> orderService.createOrder(user.getKey(),
+                List.of(item(plenty, 2), item(scarce, 2)), user.getValue(), "CARD"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Insufficient stock for product with id: " + scarce);
+
+        assertThat(stockOf(plenty)).isEqualTo(5);
+        assertThat(stockOf(scarce)).isEqualTo(1);
+        assertThat(ordersOf(user.getKey())).isZero();
+    }
+
+    @Test
+    void concurrentOrdersNeverTakeMoreThanIsInStock() throws Exception {
+        Map<Long, Long> users = seedUsers(CALLERS);
+        Long productId = newProduct(5);
+
+        int placed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Order>> results = new ArrayList<>();
+            for (Map.Entry<Long, Long> user : users.entrySet()) {
+                results.add(executor.submit(() -> orderService.createOrder(user.getKey(),
+                        List.of(item(productId, 1)), user.getValue(), "CARD")));
+            }
+            for (Future<Order> result : results) {
+                try {
+                    result.get();
+                    placed++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).hasMessage("Insufficient stock for product with id: " + productId);
+                }
+            }
+        }
+        assertThat(placed).isEqualTo(5);
+        assertThat(stockOf(productId)).isZero();
+    }
+
+    @Test
+    void checkoutWithTooLittleStockKeepsTheCart() {
+        Map.Entry<Long, Long> user = seedUsers(1).entrySet().iterator().next();
+        Long productId = newProduct(1);
+        cartService.addItem(user.getKey(), productId, 2);
+
+        assertThatThrownBy(() -> orderService.checkout(user.getKey(), user.getValue(), "CARD"))
+                .hasMessage("Insufficient stock for product with id: " + productId);
+
+        assertThat(cartService.getCart(user.getKey()).getItems()).hasSize(1);
+        assertThat(stockOf(productId)).isEqualTo(1);
+        assertThat(ordersOf(user.getKey())).isZero();
+    }
+
+    @Test
+    void concurrentCheckoutsOfOneCartPlaceOneOrder() throws Exception {
+        Map.Entry<Long, Long> user = seedUsers(1).entrySet().iterator().next();
+        Long first = newProduct(100);
+        Long second = newProduct(100);
+        cartService.addItem(user.getKey(), first, 1);
+        cartService.addItem(user.getKey(), second, 2);
+
+        int placed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Order>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> orderService.checkout(user.getKey(), user.getValue(), "CARD")));
+            }
+            for (Future<Order> result : results) {
+                try {
+                    result.get();
+                    placed++;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).hasMessage("Cart is empty");
+                }
+            }
+        }
+        assertThat(placed).isEqualTo(1);
+        assertThat(cartService.getCart(user.getKey()).getItems()).isEmpty();
+        assertThat(stockOf(first)).isEqualTo(99);
+        assertThat(stockOf(second)).isEqualTo(98);
+    }
+
+    private Long newProduct(int stock) {
+        Product product = new Product();
+        product.setName("Stock test " + SEEDS.incrementAndGet());
+        product.setPrice(new BigDecimal("9.99"));
+        product.setStockQuantity(stock);
+        return productRepository.save(product).getId();
+    }
+
+    private static OrderItemRequest item(Long productId, int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private int stockOf(Long productId) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productId);
+    }
+
+    private int ordersOf(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?", Integer.class, userId);
+    }
+
+    /**
+     * Create users, each with one address.
+     *
+     * @return user ID -> address ID
+     */
+    private Map<Long, Long> seedUsers(int count) {
+        String prefix = "order-test" + SEEDS.incrementAndGet();
+        List<Object[]> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new Object[]{prefix + "-" + i, prefix + "-" + i + "@example.com", "{noop}unused"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, email, password) VALUES (?, ?, ?)", users);
+        jdbcTemplate.update("INSERT INTO addresses (user_id, street, city, state, zip_code, country, is_default) " +
+                "SELECT id, '1 Main St', 'Springfield', 'IL', '62701', 'US', TRUE FROM users WHERE username LIKE ?",
+                prefix + "-%");
+
+        Map<Long, Long> addresses = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT a.user_id, a.id FROM addresses a JOIN users u ON u.id = a.user_id " +
+                        "WHERE u.username LIKE ?",
+                rs -> {
+                    addresses.put(rs.getLong("user_id"), rs.getLong("id"));
+                }, prefix + "-%");
+        return addresses;
+    }
+}